@@ -0,0 +1,589 @@
+package net.evanstoner.cli4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public abstract class Command implements Cloneable {
+    public enum ParameterOrder {
+        NAMED_THEN_POSITIONAL,
+        POSITIONAL_THEN_NAMED
+    }
+
+    /**
+     * How often exec() samples the resource usage of a running child.
+     */
+    private static final long SAMPLE_INTERVAL_MILLIS = 50;
+
+    private static final SingleFlight SINGLE_FLIGHT = new SingleFlight();
+
+    private static volatile ProcessLauncher _defaultLauncher = new ProcessBuilderLauncher();
+
+    private static volatile DrainPool _defaultDrainPool = null;
+
+    private ParameterOrder _paramOrder = ParameterOrder.NAMED_THEN_POSITIONAL;
+
+    private String _baseCommand;
+    private Command _parentCommmand = null;
+    private String _parentCommandGlue = " ";
+
+    private String _longOptsGlue = " ";
+    private String _longOptsPrefix = "--";
+    private String _shortOptsPrefix = "-";
+
+    private boolean _coalesce = false;
+
+    private ProcessLauncher _launcher = null;
+
+    private ExecProfile _profile = null;
+
+    private DrainPool _drainPool = null;
+
+    private HashMap<String, String> _longOpts = new HashMap<>();
+
+    /**
+     * Short opts support options with values or treated as pure flags
+     * <p>
+     * flags will have a value of `null`
+     */
+    private HashMap<String, String> _shortOpts = new HashMap<>();
+
+    // Sorted map
+    private TreeMap<Integer, String> _positional = new TreeMap<>();
+
+
+    /**
+     * Construct a command with the specified base command and no parent.
+     *
+     * @param baseCommand The executable command (e.g. "nova", "virsh", "vboxmanage").
+     */
+    protected Command(String baseCommand) {
+        this(baseCommand, null);
+    }
+
+    /**
+     * Clone a command
+     *
+     * @param c
+     */
+    protected Command(Command c) {
+        if (c == null){
+            return;
+        }
+
+        this._paramOrder = c._paramOrder;
+
+        this._baseCommand = c._baseCommand;
+
+        if (c._parentCommmand != null) {
+            this._parentCommmand = c._parentCommmand;
+        }
+
+        this._parentCommandGlue = c._parentCommandGlue;
+
+        this._longOptsGlue = c._longOptsGlue;
+        this._longOptsPrefix = c._longOptsPrefix;
+        this._shortOptsPrefix = c._shortOptsPrefix;
+
+        this._coalesce = c._coalesce;
+        this._launcher = c._launcher;
+        this._profile = c._profile;
+        this._drainPool = c._drainPool;
+
+        this._shortOpts = new HashMap<>(c._shortOpts);
+        this._longOpts = new HashMap<>(c._longOpts);
+        this._positional = new TreeMap<>(c._positional);
+    }
+
+    /**
+     * Construct a command with the specified base command and the specified parent.
+     *
+     * @param baseCommand The executable command (e.g. "nova", "virsh", "vboxmanage").
+     * @param parent      The parent command which will be built and prepended to this command before
+     *                    execution.
+     */
+    protected Command(String baseCommand, Command parent) {
+        _baseCommand = baseCommand;
+        _parentCommmand = parent;
+    }
+
+
+    /**
+     * Set the glue used to combine the parent command and this command when building. This defaults
+     * to a space (" ").
+     *
+     * @param glue The glue string.
+     * @return this
+     */
+    protected Command parentCommandGlue(String glue) {
+        _parentCommandGlue = glue;
+        return this;
+    }
+
+
+    /**
+     * Set the glue used to combine long option with their value
+     * Default: ' ' (space)
+     *
+     * @param glue The glue string.
+     * @return this
+     */
+    protected Command longOptsGlue(String glue) {
+        _longOptsGlue = glue;
+        return this;
+    }
+
+    /**
+     * Set the prefix to place before long options.
+     * <p>
+     * Defaults to two dashes ("--").
+     *
+     * @param prefix The prefix string.
+     * @return this
+     */
+    protected Command longOptsPrefix(String prefix) {
+        _longOptsPrefix = prefix;
+        return this;
+    }
+
+    /**
+     * Set the prefix to place before short options.
+     * <p>
+     * Defaults to a dash ("-").
+     *
+     * @param prefix The prefix string.
+     * @return this
+     */
+    protected Command shortOptsPrefix(String prefix) {
+        _shortOptsPrefix = prefix;
+        return this;
+    }
+
+    /**
+     * Set the order of options and arguments when building the command
+     *
+     * @param order ParameterOrder enum
+     * @return this
+     */
+    protected Command parameterOrder(ParameterOrder order) {
+        _paramOrder = order;
+        return this;
+    }
+
+
+    /**
+     * Coalesce concurrent identical executions of this command. While one exec() is in flight, other
+     * calls which render the same command line wait for it and receive the same {@link Result}
+     * instead of starting another process. Results are not cached after the execution finishes.
+     * <p>
+     * Only enable this for commands without side effects, such as queries.
+     * <p>
+     * Defaults to false.
+     *
+     * @param coalesce Whether to coalesce executions.
+     * @return this
+     */
+    protected Command coalesce(boolean coalesce) {
+        _coalesce = coalesce;
+        return this;
+    }
+
+    /**
+     * Set the launcher which starts the process for this command and, unless they set their own, for
+     * commands which have this one as a parent.
+     * <p>
+     * Defaults to the parent's launcher, or the default launcher if no command in the chain sets one.
+     *
+     * @param launcher The launcher, or null to inherit.
+     * @return this
+     */
+    protected Command launcher(ProcessLauncher launcher) {
+        _launcher = launcher;
+        return this;
+    }
+
+    /**
+     * Set the launcher used by commands which don't set one themselves.
+     *
+     * @param launcher The launcher.
+     */
+    public static void setDefaultLauncher(ProcessLauncher launcher) {
+        if (launcher == null) {
+            throw new NullPointerException("launcher");
+        }
+        _defaultLauncher = launcher;
+    }
+
+    public static ProcessLauncher getDefaultLauncher() {
+        return _defaultLauncher;
+    }
+
+    /**
+     * Set the working directory and environment overrides for this command and the commands which have
+     * it as a parent. A subcommand's own profile is layered on top of its parent's.
+     * <p>
+     * Share profiles rather than building one per command: the child's environment is only worked out
+     * once per profile.
+     *
+     * @param profile The profile, or null to inherit.
+     * @return this
+     */
+    protected Command profile(ExecProfile profile) {
+        _profile = profile;
+        return this;
+    }
+
+    /**
+     * Collect the output of this command and its subcommands with a shared {@link DrainPool} instead
+     * of two reader threads per execution.
+     * <p>
+     * Defaults to the parent's pool, or the default pool if no command in the chain sets one.
+     *
+     * @param drainPool The pool, or null to inherit.
+     * @return this
+     */
+    protected Command drainPool(DrainPool drainPool) {
+        _drainPool = drainPool;
+        return this;
+    }
+
+    /**
+     * Set the drain pool used by commands which don't set one themselves.
+     *
+     * @param drainPool The pool, or null to start reader threads for each execution. Defaults to null.
+     */
+    public static void setDefaultDrainPool(DrainPool drainPool) {
+        _defaultDrainPool = drainPool;
+    }
+
+    public static DrainPool getDefaultDrainPool() {
+        return _defaultDrainPool;
+    }
+
+    /**
+     * Set a long option.
+     *
+     * @param opt   The name of the option as it should appear in the command, but without the prefix.
+     * @param value The value of the argument.
+     */
+    protected void longOption(String opt, String value) {
+        _longOpts.put(opt, value);
+    }
+
+    /**
+     * Set a long option as a flag
+     *
+     * @param name The name of the argument as it should appear in the command, but without the prefix.
+     */
+    protected void longOption(String name) {
+        longOption(name, null);
+    }
+
+    /**
+     * Set a short option.
+     *
+     * @param opt   The name of the option as it should appear in the command, but without the prefix.
+     * @param value The value of the argument.
+     */
+    protected void shortOption(String opt, String value) {
+        _shortOpts.put(opt, value);
+    }
+
+    /**
+     * Set a short option as a flag
+     *
+     * @param opt The name of the argument as it should appear in the command, but without the prefix.
+     */
+    protected void shortOption(String opt) {
+        shortOption(opt, null);
+    }
+
+    /**
+     * Set a short option as a flag
+     *
+     * @param opt The name of the argument as it should appear in the command, but without the prefix.
+     */
+    protected void shortOption(char opt) {
+        shortOption(opt, null);
+    }
+
+    protected void shortOption(char opt, String value) {
+        shortOption(String.valueOf(opt), value);
+    }
+
+    /**
+     * Set an argument.
+     *
+     * @param index The index of the argument.
+     * @param value The value of the argument.
+     */
+    protected void positional(int index, String value) {
+        _positional.put(index, value);
+    }
+
+
+    public Result exec() throws IOException, InterruptedException {
+        String command = build();
+        ExecProfile profile = effectiveProfile();
+        if (_coalesce) {
+            // the same command line in another directory or environment is a different execution
+            return SINGLE_FLIGHT.exec(Arrays.asList(command, profile), () -> exec(command, profile));
+        }
+        return exec(command, profile);
+    }
+
+    private Result exec(String command, ExecProfile profile) throws IOException, InterruptedException {
+        ExecTrace trace = ExecTrace.start(command);
+
+        DrainPool drainPool = effectiveDrainPool();
+        if (drainPool != null && drainPool.isClosed()) {
+            throw new IllegalStateException("drain pool is closed");
+        }
+
+        // execute the command, capturing the exit code and output
+        Instant startTime = Instant.now();
+        long start = System.nanoTime();
+        trace.spawnBegin();
+        Process p = spawn(command, profile);
+        long pid = ProcStats.pid(p);
+        trace.spawnEnd(pid);
+
+        // both pipes are drained in the background so a chatty child can't fill one while we block
+        // on the other, leaving this thread free to sample the child's resource usage
+        trace.drainBegin();
+        Future<byte[]> outFuture;
+        Future<byte[]> errFuture;
+        if (drainPool == null) {
+            outFuture = Streams.DRAINERS.submit(() -> Streams.readFully(p.getInputStream()));
+            errFuture = Streams.DRAINERS.submit(() -> Streams.readFully(p.getErrorStream()));
+        } else {
+            DrainPool.Drain drain;
+            try {
+                drain = drainPool.register(p);
+            } catch (RuntimeException e) {
+                // the pool was closed after the check above; nobody will read the child's output
+                Streams.discard(p);
+                throw e;
+            }
+            outFuture = drain.out;
+            errFuture = drain.err;
+        }
+
+        trace.waitBegin();
+        ResourceUsage usage = ProcStats.sample(pid, null);
+        try {
+            while (!p.waitFor(SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                usage = ProcStats.sample(pid, usage);
+            }
+        } catch (InterruptedException e) {
+            // nobody is left to wait for the child, so don't leave it running
+            p.destroy();
+            throw e;
+        }
+        int exitCode = p.exitValue();
+        trace.waitEnd(exitCode);
+
+        byte[] outBytes = await(outFuture, "stdout");
+        byte[] errBytes = await(errFuture, "stderr");
+        trace.drainEnd(outBytes.length, errBytes.length);
+
+        String out = new String(outBytes).trim();
+        String err = new String(errBytes).trim();
+
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        return new Result(exitCode, out, err, pid, startTime, duration, usage);
+    }
+
+    private byte[] await(Future<byte[]> drain, String stream) throws IOException, InterruptedException {
+        try {
+            return drain.get();
+        } catch (ExecutionException e) {
+            throw new IOException("failed to read " + stream + " of " + _baseCommand, e.getCause());
+        }
+    }
+
+    /**
+     * Execute the command when subscribed to, publishing its stdout and stderr as chunks of bytes
+     * while it runs. See {@link OutputPublisher} for the backpressure semantics.
+     *
+     * @return A publisher which accepts a single subscriber.
+     */
+    public OutputPublisher publish() {
+        return new OutputPublisher(this::spawn, false);
+    }
+
+    /**
+     * Like {@link #publish()}, but each chunk is a single line of output without its terminator.
+     *
+     * @return A publisher which accepts a single subscriber.
+     */
+    public OutputPublisher publishLines() {
+        return new OutputPublisher(this::spawn, true);
+    }
+
+    /**
+     * Poll this command at an interval, reporting only the lines of output which change between runs.
+     * See {@link Watcher}.
+     *
+     * @param interval The base polling interval.
+     * @return An unstarted watcher; call {@link Watcher#start} to begin polling.
+     */
+    public Watcher watch(Duration interval) {
+        return new Watcher(this, interval);
+    }
+
+    private Process spawn() throws IOException {
+        return spawn(build(), effectiveProfile());
+    }
+
+    private Process spawn(String command, ExecProfile profile) throws IOException {
+        return effectiveLauncher().launch(argv(command), profile);
+    }
+
+    private ProcessLauncher effectiveLauncher() {
+        for (Command c = this; c != null; c = c._parentCommmand) {
+            if (c._launcher != null) {
+                return c._launcher;
+            }
+        }
+        return _defaultLauncher;
+    }
+
+    private DrainPool effectiveDrainPool() {
+        for (Command c = this; c != null; c = c._parentCommmand) {
+            if (c._drainPool != null) {
+                return c._drainPool;
+            }
+        }
+        return _defaultDrainPool;
+    }
+
+    /**
+     * @return The profiles of this command and its parents combined. Where they
+     * disagree the nearest command wins.
+     */
+    ExecProfile effectiveProfile() {
+        ExecProfile profile = ExecProfile.EMPTY;
+        for (Command c = this; c != null; c = c._parentCommmand) {
+            if (c._profile != null) {
+                profile = c._profile.overlay(profile);
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Split a built command line into words the same way Runtime.exec(String) does: on whitespace,
+     * without any quote handling.
+     */
+    static List<String> argv(String command) {
+        StringTokenizer st = new StringTokenizer(command);
+        List<String> argv = new ArrayList<>(st.countTokens());
+        while (st.hasMoreTokens()) {
+            argv.add(st.nextToken());
+        }
+        if (argv.isEmpty()) {
+            throw new IllegalArgumentException("Empty command");
+        }
+        return argv;
+    }
+
+    protected String build() {
+
+        String base = buildParent();
+
+        StringBuilder flagsSb = new StringBuilder(_shortOptsPrefix);
+        StringBuilder shortSb = new StringBuilder();
+        StringBuilder longSb = new StringBuilder();
+
+        StringBuilder positionalSb = new StringBuilder();
+
+        _shortOpts.forEach((key, value) -> {
+            if (value == null) {
+                flagsSb.append(key);
+            } else {
+                shortSb.append(_shortOptsPrefix).append(key).append(" ");
+                if (!value.trim().isEmpty()) {
+                    shortSb.append(value).append(" ");
+                }
+            }
+        });
+
+        // if there are no flags, remove the flags prefix
+        if (flagsSb.length() <= _shortOptsPrefix.length()) {
+            flagsSb.delete(0, flagsSb.length());
+        }
+
+        _longOpts.forEach((key, value) -> {
+            if (value == null) {
+                longSb.append(_longOptsPrefix).append(key).append(" ");
+            } else {
+                longSb.append(_longOptsPrefix).append(key).append(_longOptsGlue).append(value).append(" ");
+            }
+        });
+
+        // _positional is a TreeMap, which has sorted Keys in natural ordering
+        for (String arg : _positional.values()) {
+            positionalSb.append(arg).append(" ");
+        }
+
+        base += _baseCommand;
+
+        if (_paramOrder == ParameterOrder.NAMED_THEN_POSITIONAL) {
+            base += emptyOrString(flagsSb) + emptyOrString(shortSb) + emptyOrString(longSb) + emptyOrString(positionalSb);
+        } else if (_paramOrder == ParameterOrder.POSITIONAL_THEN_NAMED) {
+            base += emptyOrString(positionalSb) + emptyOrString(flagsSb) + emptyOrString(shortSb) + emptyOrString(longSb);
+        }
+
+        return base;
+    }
+
+    /**
+     * Build the parent command followed by the parent command glue, or an empty string if there is
+     * no parent. Subclasses which override {@link #build()} should start with this.
+     *
+     * @return The rendered parent prefix.
+     */
+    protected String buildParent() {
+        // Moved _parentCommmand processing to build() to be able to test commands when
+        // chaining with other extended Command objects
+
+        // we must prepend the parent command's build, if there is one
+        if (_parentCommmand != null) {
+            return _parentCommmand.build() + _parentCommandGlue;
+        }
+        return "";
+    }
+
+    @Override
+    protected Object clone() throws CloneNotSupportedException {
+        return new Command(this) {};
+    }
+
+    /**
+     * Get an empty string or string with prepended space char
+     * when building commands
+     * <p>
+     * Useful when building commands and only want 1 or 0 spaces between an argument
+     *
+     * @param sb string builder to check if empty
+     * @return empty string if string build is empty,
+     * prepended string with space char is not empty
+     */
+    String emptyOrString(StringBuilder sb) {
+        if (sb != null && sb.length() > 0) {
+            return " " + sb.toString().trim();
+        }
+
+        return "";
+    }
+}
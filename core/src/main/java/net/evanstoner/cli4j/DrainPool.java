@@ -0,0 +1,268 @@
+package net.evanstoner.cli4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reads the stdout and stderr of many child processes with a fixed number of threads.
+ * <p>
+ * By default exec() starts two reader threads per process, each blocked in a read until the child
+ * closes its pipe. With a drain pool, each thread instead polls the pipes of every process assigned to
+ * it and only reads what is already buffered, so the number of threads stays the same however many
+ * commands run at once. Output is collected per process and handed to its {@link Result} when the
+ * process exits.
+ * <pre>
+ * DrainPool drains = new DrainPool(2);
+ * Command.setDefaultDrainPool(drains);
+ * </pre>
+ * Threads back off from 1 to 10 ms while none of their pipes have anything to read. That latency is
+ * the price for the constant thread count: commands which finish in a few milliseconds are faster
+ * with the default readers.
+ * <p>
+ * Each pass reads at most a few buffers from each pipe before moving on, so a child which writes
+ * faster than it can be read doesn't starve the others on the same thread.
+ * <p>
+ * Once a child has exited, the rest of its output is read to the end on a short-lived reader thread
+ * rather than by the pool. A child which leaves descendants holding its pipes open therefore only
+ * delays its own result until they close them.
+ * <p>
+ * Closing the pool hands the processes it was draining to reader threads of their own in the same
+ * way, so executions already running still complete.
+ */
+public class DrainPool implements Closeable {
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * The most buffers read from one pipe per pass.
+     */
+    private static final int MAX_READS_PER_PASS = 4;
+
+    /**
+     * The collected output of one process.
+     */
+    static final class Drain {
+        final CompletableFuture<byte[]> out = new CompletableFuture<>();
+        final CompletableFuture<byte[]> err = new CompletableFuture<>();
+
+        private final Process _process;
+        private final ByteArrayOutputStream _outBuffer = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream _errBuffer = new ByteArrayOutputStream();
+        private boolean _exited = false;
+
+        Drain(Process process) {
+            _process = process;
+        }
+
+        /**
+         * Read some of whatever is buffered in both pipes, without blocking.
+         *
+         * @return Whether anything was read.
+         */
+        boolean pump(byte[] buf) throws IOException {
+            // check first: once the exit is observed, everything the child wrote is in the pipes
+            _exited = !_process.isAlive();
+
+            boolean progress = readAvailable(_process.getInputStream(), _outBuffer, buf);
+            progress |= readAvailable(_process.getErrorStream(), _errBuffer, buf);
+            return progress;
+        }
+
+        /**
+         * @return Whether the process had exited at the start of the last pump, and only the rest of its
+         * output is left to read.
+         */
+        boolean hasExited() {
+            return _exited;
+        }
+
+        /**
+         * Read both pipes to the end and complete the futures. This blocks for as long as a descendant
+         * of the process keeps a pipe open.
+         */
+        void finish() {
+            try {
+                byte[] buf = new byte[Streams.BUFFER_SIZE];
+                readRemaining(_process.getInputStream(), _outBuffer, buf);
+                readRemaining(_process.getErrorStream(), _errBuffer, buf);
+                out.complete(_outBuffer.toByteArray());
+                err.complete(_errBuffer.toByteArray());
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        boolean isDone() {
+            return out.isDone();
+        }
+
+        void fail(Throwable t) {
+            out.completeExceptionally(t);
+            err.completeExceptionally(t);
+        }
+
+        private static boolean readAvailable(InputStream in, ByteArrayOutputStream buffer, byte[] buf)
+                throws IOException {
+            boolean progress = false;
+            int available;
+            for (int reads = 0; reads < MAX_READS_PER_PASS && (available = in.available()) > 0; reads++) {
+                int n = in.read(buf, 0, Math.min(available, buf.length));
+                if (n <= 0) {
+                    break;
+                }
+                buffer.write(buf, 0, n);
+                progress = true;
+            }
+            return progress;
+        }
+
+        private static void readRemaining(InputStream in, ByteArrayOutputStream buffer, byte[] buf)
+                throws IOException {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                buffer.write(buf, 0, n);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final ConcurrentLinkedQueue<Drain> _incoming = new ConcurrentLinkedQueue<>();
+        private final List<Drain> _drains = new ArrayList<>();
+        private final byte[] _buf = new byte[Streams.BUFFER_SIZE];
+        private volatile Thread _thread;
+        private boolean _stopped = false;
+
+        @Override
+        public void run() {
+            _thread = Thread.currentThread();
+            long backoff = MIN_BACKOFF_NANOS;
+
+            while (!_closed) {
+                Drain added;
+                while ((added = _incoming.poll()) != null) {
+                    _drains.add(added);
+                }
+
+                boolean progress = false;
+                for (Iterator<Drain> it = _drains.iterator(); it.hasNext(); ) {
+                    Drain drain = it.next();
+                    try {
+                        progress |= drain.pump(_buf);
+                    } catch (IOException | RuntimeException e) {
+                        drain.fail(e);
+                    }
+                    if (drain.isDone()) {
+                        it.remove();
+                    } else if (drain.hasExited()) {
+                        // the tail may block, so it's read off the pool
+                        it.remove();
+                        Streams.DRAINERS.execute(drain::finish);
+                    }
+                }
+
+                if (progress) {
+                    backoff = MIN_BACKOFF_NANOS;
+                } else if (_incoming.isEmpty()) {
+                    LockSupport.parkNanos(this, backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+                }
+            }
+
+            synchronized (this) {
+                _stopped = true;
+            }
+            // children still running would block on a full pipe if nobody read it any more
+            _drains.forEach(DrainPool::handOff);
+            _incoming.forEach(DrainPool::handOff);
+        }
+
+        /**
+         * @return False if the worker has stopped and won't read the drain.
+         */
+        boolean add(Drain drain) {
+            synchronized (this) {
+                if (_stopped) {
+                    return false;
+                }
+                _incoming.add(drain);
+            }
+            Thread t = _thread;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+            return true;
+        }
+    }
+
+    private final List<Worker> _workers = new ArrayList<>();
+    private final List<Thread> _threads = new ArrayList<>();
+    private final AtomicInteger _next = new AtomicInteger();
+    private volatile boolean _closed = false;
+
+    /**
+     * @param threads How many threads read process output. One or two is enough for hundreds of
+     *                mostly idle children.
+     */
+    public DrainPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        ThreadFactory factory = Streams.daemonThreads("cli4j-mux-");
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker();
+            Thread t = factory.newThread(worker);
+            _workers.add(worker);
+            _threads.add(t);
+            t.start();
+        }
+    }
+
+    boolean isClosed() {
+        return _closed;
+    }
+
+    /**
+     * Start collecting the output of a process. Processes are spread over the threads in turn.
+     *
+     * @return The process's stdout and stderr, completed once it has exited and both are read.
+     */
+    Drain register(Process process) {
+        if (_closed) {
+            throw new IllegalStateException("drain pool is closed");
+        }
+        Drain drain = new Drain(process);
+        if (!_workers.get(Math.floorMod(_next.getAndIncrement(), _workers.size())).add(drain)) {
+            // closed concurrently, after the worker handed off its queue
+            handOff(drain);
+        }
+        return drain;
+    }
+
+    private static void handOff(Drain drain) {
+        Streams.DRAINERS.execute(drain::finish);
+    }
+
+    /**
+     * Stop polling and reject new processes. Processes already registered are read to the end by
+     * reader threads of their own, so their executions still complete.
+     */
+    @Override
+    public void close() {
+        _closed = true;
+        for (Thread t : _threads) {
+            LockSupport.unpark(t);
+        }
+    }
+}
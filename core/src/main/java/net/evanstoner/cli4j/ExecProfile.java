@@ -0,0 +1,197 @@
+package net.evanstoner.cli4j;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+/**
+ * An immutable set of environment overrides plus a working directory, applied when a command's process
+ * is launched. Set one on a command with {@link Command#profile(ExecProfile)}; subcommands inherit it.
+ * <pre>
+ * ExecProfile admin = ExecProfile.EMPTY
+ *         .withEnv("OS_USERNAME", "admin")
+ *         .withEnv("OS_PASSWORD", password)
+ *         .withDirectory(new File("/srv/deploy"));
+ * </pre>
+ * Environment variables are the place for secrets: unlike arguments, they don't show up in ps output.
+ * <p>
+ * Profiles are meant to be built once and shared. The child's complete environment is worked out on
+ * first use and kept, so launching with a profile doesn't copy {@link System#getenv()} again.
+ */
+public final class ExecProfile {
+    /**
+     * A profile which changes nothing: the child inherits the JVM's environment and working directory.
+     */
+    public static final ExecProfile EMPTY = new ExecProfile(null, Collections.emptyMap());
+
+    private final File _directory;
+    private final Map<String, String> _environment;
+
+    /**
+     * The child's environment as "NAME=value" entries, built on first use.
+     */
+    private volatile String[] _environmentBlock = null;
+
+    /**
+     * Profiles built by {@link #overlay(ExecProfile)}, so that layering the same profiles again returns
+     * the same instance and its environment block is reused. Weak so that one-off upper profiles don't
+     * pile up.
+     */
+    private final Map<ExecProfile, ExecProfile> _overlays = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private ExecProfile(File directory, Map<String, String> environment) {
+        _directory = directory;
+        _environment = environment;
+    }
+
+    /**
+     * @param directory   The working directory, or null for the JVM's.
+     * @param environment Variables to set on top of the JVM's environment. A null value removes the
+     *                    variable. The map is copied.
+     * @return A new profile.
+     */
+    public static ExecProfile of(File directory, Map<String, String> environment) {
+        for (String name : environment.keySet()) {
+            checkName(name);
+        }
+        if (directory == null && environment.isEmpty()) {
+            return EMPTY;
+        }
+        return new ExecProfile(directory, Collections.unmodifiableMap(new HashMap<>(environment)));
+    }
+
+    /**
+     * @param directory The working directory, or null for the JVM's.
+     * @return A copy of this profile with a different working directory.
+     */
+    public ExecProfile withDirectory(File directory) {
+        return Objects.equals(directory, _directory) ? this : of(directory, _environment);
+    }
+
+    /**
+     * @param name  The variable to set.
+     * @param value The value, or null to remove the variable from the child's environment.
+     * @return A copy of this profile with the variable set.
+     */
+    public ExecProfile withEnv(String name, String value) {
+        checkName(name);
+        Map<String, String> environment = new HashMap<>(_environment);
+        environment.put(name, value);
+        return new ExecProfile(_directory, Collections.unmodifiableMap(environment));
+    }
+
+    /**
+     * @param name The variable to remove from the child's environment.
+     * @return A copy of this profile which removes the variable.
+     */
+    public ExecProfile withoutEnv(String name) {
+        return withEnv(name, null);
+    }
+
+    /**
+     * Layer another profile on top of this one. Its variables win over this profile's, and its working
+     * directory is used if it has one.
+     *
+     * @param other The profile to apply on top.
+     * @return The combined profile, which is this or other if either one is empty. Overlaying the same
+     * profile again returns the same instance.
+     */
+    public ExecProfile overlay(ExecProfile other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        return _overlays.computeIfAbsent(other, o -> {
+            Map<String, String> environment = new HashMap<>(_environment);
+            environment.putAll(o._environment);
+            File directory = o._directory != null ? o._directory : _directory;
+            return new ExecProfile(directory, Collections.unmodifiableMap(environment));
+        });
+    }
+
+    /**
+     * @return The working directory, or null for the JVM's.
+     */
+    public File getDirectory() {
+        return _directory;
+    }
+
+    /**
+     * @return The environment overrides, with null values for removed variables.
+     */
+    public Map<String, String> getEnvironment() {
+        return _environment;
+    }
+
+    public boolean isEmpty() {
+        return _directory == null && _environment.isEmpty();
+    }
+
+    /**
+     * @return The child's complete environment as "NAME=value" entries, or null if the profile doesn't
+     * change the environment and the child should inherit the JVM's.
+     */
+    String[] environmentBlock() {
+        if (_environment.isEmpty()) {
+            return null;
+        }
+
+        String[] block = _environmentBlock;
+        if (block == null) {
+            Map<String, String> environment = new HashMap<>(System.getenv());
+            for (Map.Entry<String, String> e : _environment.entrySet()) {
+                if (e.getValue() == null) {
+                    environment.remove(e.getKey());
+                } else {
+                    environment.put(e.getKey(), e.getValue());
+                }
+            }
+
+            block = new String[environment.size()];
+            int i = 0;
+            for (Map.Entry<String, String> e : environment.entrySet()) {
+                block[i++] = e.getKey() + "=" + e.getValue();
+            }
+            // racing threads build equal blocks, so whichever is kept doesn't matter
+            _environmentBlock = block;
+        }
+        return block;
+    }
+
+    private static void checkName(String name) {
+        if (name.isEmpty() || name.indexOf('=') >= 0) {
+            throw new IllegalArgumentException("invalid environment variable name: " + name);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExecProfile)) {
+            return false;
+        }
+        ExecProfile other = (ExecProfile) o;
+        return Objects.equals(_directory, other._directory) && _environment.equals(other._environment);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(_directory, _environment);
+    }
+
+    /**
+     * Lists variable names only, so that profiles holding secrets are safe to log.
+     */
+    @Override
+    public String toString() {
+        return "ExecProfile{directory=" + _directory + ", environment=" + new TreeSet<>(_environment.keySet()) + "}";
+    }
+}
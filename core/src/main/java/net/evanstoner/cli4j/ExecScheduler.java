@@ -0,0 +1,220 @@
+package net.evanstoner.cli4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs command executions within a fixed process budget, starting the most urgent work first.
+ * <p>
+ * Queued executions are ordered by priority class, then by earliest deadline (executions without a
+ * deadline go last within their class), then in submission order. A deadline is the latest time an
+ * execution may start: work whose deadline has passed by the time a slot is free is dropped, and its
+ * future fails with a {@link TimeoutException}. Executions which have started always run to completion.
+ * <pre>
+ * ExecScheduler scheduler = new ExecScheduler(8);
+ * scheduler.submit(lookup, ExecScheduler.Priority.INTERACTIVE, Instant.now().plusSeconds(2));
+ * scheduler.submit(report, ExecScheduler.Priority.BATCH);
+ * </pre>
+ * Share one scheduler between all callers which should be subject to the same budget.
+ */
+public class ExecScheduler implements Closeable {
+    public enum Priority {
+        INTERACTIVE,
+        NORMAL,
+        BATCH
+    }
+
+    private static final Comparator<Task> ORDER = Comparator
+            .<Task, Priority>comparing(t -> t.priority)
+            .thenComparing(t -> t.deadline, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(t -> t.sequence);
+
+    private static class Task {
+        final Command command;
+        final Priority priority;
+        final Instant deadline;
+        final long sequence;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<Result> future = new CompletableFuture<>();
+
+        Task(Command command, Priority priority, Instant deadline, long sequence) {
+            this.command = command;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+    }
+
+    private final PriorityBlockingQueue<Task> _queue = new PriorityBlockingQueue<>(16, ORDER);
+    private final List<Thread> _workers = new ArrayList<>();
+    private final AtomicLong _sequence = new AtomicLong();
+    private volatile boolean _closed = false;
+
+    private final LongAdder _started = new LongAdder();
+    private final LongAdder _dropped = new LongAdder();
+    private final LongAdder _totalWaitNanos = new LongAdder();
+    private final AtomicLong _maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param maxConcurrent The process budget: how many executions may run at once.
+     */
+    public ExecScheduler(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+
+        ThreadFactory threads = Streams.daemonThreads("cli4j-sched-");
+        for (int i = 0; i < maxConcurrent; i++) {
+            Thread t = threads.newThread(this::work);
+            _workers.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Queue an execution without a deadline.
+     *
+     * @return The result of the execution.
+     */
+    public CompletableFuture<Result> submit(Command command, Priority priority) {
+        return submit(command, priority, null);
+    }
+
+    /**
+     * Queue an execution.
+     *
+     * @param deadline The latest time the execution may start, or null for no deadline.
+     * @return The result of the execution. Cancelling the future before the execution starts removes it
+     * from the queue.
+     */
+    public CompletableFuture<Result> submit(Command command, Priority priority, Instant deadline) {
+        if (_closed) {
+            throw new IllegalStateException("scheduler is closed");
+        }
+
+        Task task = new Task(command, priority, deadline, _sequence.getAndIncrement());
+        if (expired(task)) {
+            drop(task);
+        } else {
+            _queue.add(task);
+            task.future.whenComplete((r, t) -> {
+                if (task.future.isCancelled()) {
+                    _queue.remove(task);
+                }
+            });
+            // close() may have emptied the queue between the check above and the add
+            if (_closed && _queue.remove(task)) {
+                task.future.completeExceptionally(new CancellationException("scheduler closed"));
+            }
+        }
+        return task.future;
+    }
+
+    /**
+     * @return The number of executions waiting for a slot.
+     */
+    public int getQueueDepth() {
+        return _queue.size();
+    }
+
+    /**
+     * @return The number of executions which have been started.
+     */
+    public long getStartedCount() {
+        return _started.sum();
+    }
+
+    /**
+     * @return The number of executions dropped because their deadline passed.
+     */
+    public long getDroppedCount() {
+        return _dropped.sum();
+    }
+
+    /**
+     * @return The mean time started executions spent queued.
+     */
+    public Duration getAverageWaitTime() {
+        long started = _started.sum();
+        return started == 0 ? Duration.ZERO : Duration.ofNanos(_totalWaitNanos.sum() / started);
+    }
+
+    /**
+     * @return The longest time a started execution spent queued.
+     */
+    public Duration getMaxWaitTime() {
+        return Duration.ofNanos(_maxWaitNanos.get());
+    }
+
+    /**
+     * Stop accepting work and cancel everything still queued. Running executions are interrupted, which
+     * destroys their processes.
+     */
+    @Override
+    public void close() {
+        _closed = true;
+        for (Thread t : _workers) {
+            t.interrupt();
+        }
+
+        Task task;
+        while ((task = _queue.poll()) != null) {
+            task.future.completeExceptionally(new CancellationException("scheduler closed"));
+        }
+    }
+
+    private void work() {
+        while (!_closed) {
+            Task task;
+            try {
+                task = _queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (task.future.isDone()) {
+                continue;
+            }
+            if (expired(task)) {
+                drop(task);
+                continue;
+            }
+
+            long waited = System.nanoTime() - task.enqueuedNanos;
+            _started.increment();
+            _totalWaitNanos.add(waited);
+            _maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+            try {
+                task.future.complete(task.command.exec());
+            } catch (InterruptedException e) {
+                task.future.completeExceptionally(e);
+                return;
+            } catch (Throwable t) {
+                // an Error from one command mustn't cost a slot for good, so the worker carries on
+                task.future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private static boolean expired(Task task) {
+        return task.deadline != null && Instant.now().isAfter(task.deadline);
+    }
+
+    private void drop(Task task) {
+        _dropped.increment();
+        task.future.completeExceptionally(new TimeoutException("deadline " + task.deadline
+                + " passed before the execution could start"));
+    }
+}
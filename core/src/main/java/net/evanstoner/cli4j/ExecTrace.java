@@ -0,0 +1,57 @@
+package net.evanstoner.cli4j;
+
+/**
+ * Hooks around the phases of {@link Command#exec()}. The default implementation does nothing; when the
+ * JVM has Java Flight Recorder, {@code JfrExecTrace} is used instead so executions show up in
+ * recordings.
+ * <p>
+ * {@code JfrExecTrace} is only loaded by name, so that everything else compiles against the Java 8 API,
+ * which doesn't include jdk.jfr.
+ */
+class ExecTrace {
+    private static final ExecTrace NOOP = new ExecTrace();
+    private static final Factory FACTORY = factory();
+
+    /**
+     * Creates the trace for each execution.
+     */
+    interface Factory {
+        ExecTrace start(String command);
+    }
+
+    /**
+     * @param command The rendered command line.
+     * @return A trace for a single execution.
+     */
+    static ExecTrace start(String command) {
+        return FACTORY.start(command);
+    }
+
+    private static Factory factory() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Factory) Class.forName("net.evanstoner.cli4j.JfrExecTrace$Factory")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return command -> NOOP;
+        }
+    }
+
+    void spawnBegin() {
+    }
+
+    void spawnEnd(long pid) {
+    }
+
+    void waitBegin() {
+    }
+
+    void waitEnd(int exitCode) {
+    }
+
+    void drainBegin() {
+    }
+
+    void drainEnd(long stdoutBytes, long stderrBytes) {
+    }
+}
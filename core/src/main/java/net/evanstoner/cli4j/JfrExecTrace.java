@@ -0,0 +1,134 @@
+package net.evanstoner.cli4j;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emits a JFR event for each phase of an execution: starting the child, waiting for it to exit and
+ * draining its output. Draining runs while the child is alive, so the drain event overlaps the wait
+ * event. When no recording is active the events are never committed.
+ * <p>
+ * Only loaded by {@link ExecTrace} after checking that jdk.jfr is present.
+ */
+class JfrExecTrace extends ExecTrace {
+    private final String _command;
+    private long _pid = -1;
+
+    private final SpawnEvent _spawn = new SpawnEvent();
+    private final WaitEvent _wait = new WaitEvent();
+    private final DrainEvent _drain = new DrainEvent();
+
+    JfrExecTrace(String command) {
+        _command = command;
+    }
+
+    /**
+     * Instantiated by name from {@link ExecTrace}.
+     */
+    static final class Factory implements ExecTrace.Factory {
+        @Override
+        public ExecTrace start(String command) {
+            return new JfrExecTrace(command);
+        }
+    }
+
+    @Override
+    void spawnBegin() {
+        _spawn.begin();
+    }
+
+    @Override
+    void spawnEnd(long pid) {
+        _pid = pid;
+        _spawn.end();
+        if (_spawn.shouldCommit()) {
+            _spawn.command = _command;
+            _spawn.pid = pid;
+            _spawn.commit();
+        }
+    }
+
+    @Override
+    void waitBegin() {
+        _wait.begin();
+    }
+
+    @Override
+    void waitEnd(int exitCode) {
+        _wait.end();
+        if (_wait.shouldCommit()) {
+            _wait.command = _command;
+            _wait.pid = _pid;
+            _wait.exitCode = exitCode;
+            _wait.commit();
+        }
+    }
+
+    @Override
+    void drainBegin() {
+        _drain.begin();
+    }
+
+    @Override
+    void drainEnd(long stdoutBytes, long stderrBytes) {
+        _drain.end();
+        if (_drain.shouldCommit()) {
+            _drain.command = _command;
+            _drain.pid = _pid;
+            _drain.stdoutBytes = stdoutBytes;
+            _drain.stderrBytes = stderrBytes;
+            _drain.commit();
+        }
+    }
+
+    @Name("net.evanstoner.cli4j.CommandSpawn")
+    @Label("Command Spawn")
+    @Category("cli4j")
+    @Description("Starting a child process")
+    static class SpawnEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("PID")
+        long pid;
+    }
+
+    @Name("net.evanstoner.cli4j.CommandWait")
+    @Label("Command Wait")
+    @Category("cli4j")
+    @Description("Waiting for a child process to exit")
+    static class WaitEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("PID")
+        long pid;
+
+        @Label("Exit Code")
+        int exitCode;
+    }
+
+    @Name("net.evanstoner.cli4j.CommandDrain")
+    @Label("Command Drain")
+    @Category("cli4j")
+    @Description("Reading the output of a child process until end of stream")
+    static class DrainEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("PID")
+        long pid;
+
+        @Label("Stdout Bytes")
+        @DataAmount
+        long stdoutBytes;
+
+        @Label("Stderr Bytes")
+        @DataAmount
+        long stderrBytes;
+    }
+}
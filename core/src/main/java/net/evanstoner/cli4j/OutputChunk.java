@@ -0,0 +1,63 @@
+package net.evanstoner.cli4j;
+
+import java.nio.charset.Charset;
+
+/**
+ * A piece of output read from a running command, as emitted by an {@link OutputPublisher}.
+ * <p>
+ * Depending on how the publisher was created a chunk is either an arbitrary run of bytes or a single
+ * line without its line terminator.
+ */
+public class OutputChunk {
+    public enum Source {
+        STDOUT,
+        STDERR
+    }
+
+    private final Source _source;
+    private final byte[] _data;
+
+    public OutputChunk(Source source, byte[] data) {
+        _source = source;
+        _data = data;
+    }
+
+    public Source getSource() {
+        return _source;
+    }
+
+    public boolean isStdout() {
+        return _source == Source.STDOUT;
+    }
+
+    public boolean isStderr() {
+        return _source == Source.STDERR;
+    }
+
+    /**
+     * @return The raw bytes of this chunk. The array is not copied.
+     */
+    public byte[] getData() {
+        return _data;
+    }
+
+    public int length() {
+        return _data.length;
+    }
+
+    public String asString(Charset charset) {
+        return new String(_data, charset);
+    }
+
+    /**
+     * Decode this chunk using the platform default charset, like {@link Command#exec()} does.
+     */
+    public String asString() {
+        return new String(_data);
+    }
+
+    @Override
+    public String toString() {
+        return _source + ": " + asString();
+    }
+}
@@ -0,0 +1,224 @@
+package net.evanstoner.cli4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The lines which differ between two runs of a command, as emitted by a {@link Watcher}.
+ * <p>
+ * Lines are compared as a multiset, so reordering alone is not a change. If the watcher identifies
+ * lines by a key (e.g. the ID column of a table), a line whose key was seen before but whose content
+ * differs is reported as changed rather than as a removal plus an addition. Lines without a key, such as
+ * table borders and headers, are compared as a multiset among themselves.
+ */
+public class OutputDiff {
+    public static class Change {
+        private final String _before;
+        private final String _after;
+
+        Change(String before, String after) {
+            _before = before;
+            _after = after;
+        }
+
+        public String getBefore() {
+            return _before;
+        }
+
+        public String getAfter() {
+            return _after;
+        }
+
+        @Override
+        public String toString() {
+            return "- " + _before + System.lineSeparator() + "+ " + _after;
+        }
+    }
+
+    private final Result _result;
+    private final List<String> _added;
+    private final List<String> _removed;
+    private final List<Change> _changed;
+
+    OutputDiff(Result result, List<String> added, List<String> removed, List<Change> changed) {
+        _result = result;
+        _added = Collections.unmodifiableList(added);
+        _removed = Collections.unmodifiableList(removed);
+        _changed = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return The result of the run that produced this diff.
+     */
+    public Result getResult() {
+        return _result;
+    }
+
+    /**
+     * @return Lines which weren't in the previous output, in output order.
+     */
+    public List<String> getAdded() {
+        return _added;
+    }
+
+    /**
+     * @return Lines of the previous output which are gone, in their previous order.
+     */
+    public List<String> getRemoved() {
+        return _removed;
+    }
+
+    /**
+     * @return Lines whose key was in the previous output but whose content differs. Always empty unless
+     * the watcher is keyed.
+     */
+    public List<Change> getChanged() {
+        return _changed;
+    }
+
+    public boolean isEmpty() {
+        return _added.isEmpty() && _removed.isEmpty() && _changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String line : _removed) {
+            sb.append("- ").append(line).append(System.lineSeparator());
+        }
+        for (Change change : _changed) {
+            sb.append(change).append(System.lineSeparator());
+        }
+        for (String line : _added) {
+            sb.append("+ ").append(line).append(System.lineSeparator());
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Compare two outputs line by line, treating lines as a multiset.
+     */
+    static OutputDiff between(Result result, List<String> previous, List<String> current) {
+        Map<String, Integer> remaining = count(previous);
+        List<String> added = new ArrayList<>();
+        for (String line : current) {
+            if (!take(remaining, line)) {
+                added.add(line);
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String line : previous) {
+            if (take(remaining, line)) {
+                removed.add(line);
+            }
+        }
+
+        return new OutputDiff(result, added, removed, Collections.emptyList());
+    }
+
+    /**
+     * Compare two outputs by the key of each line. If several lines share a key the last one wins. Lines
+     * for which the key function returns null or throws are compared unkeyed.
+     */
+    static OutputDiff between(Result result, List<String> previous, List<String> current,
+                              Function<String, String> key) {
+        Keyed before = new Keyed(previous, key);
+        Keyed after = new Keyed(current, key);
+
+        List<Change> changed = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : after.lastByKey.entrySet()) {
+            Integer old = before.lastByKey.get(e.getKey());
+            if (old != null && !previous.get(old).equals(current.get(e.getValue()))) {
+                changed.add(new Change(previous.get(old), current.get(e.getValue())));
+            }
+        }
+
+        return new OutputDiff(result, after.missingFrom(before), before.missingFrom(after), changed);
+    }
+
+    /**
+     * The lines of one output with their keys.
+     */
+    private static final class Keyed {
+        final List<String> lines;
+        final List<String> keys;
+        /**
+         * The position of the last line with each key.
+         */
+        final Map<String, Integer> lastByKey = new LinkedHashMap<>();
+        final List<String> unkeyed = new ArrayList<>();
+
+        Keyed(List<String> lines, Function<String, String> key) {
+            this.lines = lines;
+            keys = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                String k;
+                try {
+                    k = key.apply(line);
+                } catch (RuntimeException e) {
+                    k = null;
+                }
+
+                keys.add(k);
+                if (k == null) {
+                    unkeyed.add(line);
+                } else {
+                    lastByKey.put(k, i);
+                }
+            }
+        }
+
+        /**
+         * @return In output order, the lines whose key isn't in the other output, and the lines without a
+         * key beyond the number of times the other output has them.
+         */
+        List<String> missingFrom(Keyed other) {
+            Map<String, Integer> remaining = count(other.unkeyed);
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < lines.size(); i++) {
+                String k = keys.get(i);
+                if (k == null) {
+                    if (!take(remaining, lines.get(i))) {
+                        missing.add(lines.get(i));
+                    }
+                } else if (lastByKey.get(k) == i && !other.lastByKey.containsKey(k)) {
+                    missing.add(lines.get(i));
+                }
+            }
+            return missing;
+        }
+    }
+
+    private static Map<String, Integer> count(List<String> lines) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String line : lines) {
+            counts.merge(line, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Remove one occurrence of a line from a multiset.
+     *
+     * @return False if the line wasn't in it.
+     */
+    private static boolean take(Map<String, Integer> counts, String line) {
+        Integer count = counts.get(line);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            counts.remove(line);
+        } else {
+            counts.put(line, count - 1);
+        }
+        return true;
+    }
+}
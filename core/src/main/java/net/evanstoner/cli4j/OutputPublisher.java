@@ -0,0 +1,259 @@
+package net.evanstoner.cli4j;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the stdout and stderr of a single command execution as a stream of {@link OutputChunk}s.
+ * <p>
+ * The command is started when a subscriber subscribes, and only one subscriber is allowed. The pipes
+ * of the child are only read while the subscriber has outstanding demand, so a slow subscriber lets
+ * the pipes fill up and the child blocks on its writes. At most one chunk per stream is held in memory
+ * at any time.
+ * <p>
+ * Chunks from stdout and stderr are signalled serially but may be interleaved in any order. The
+ * subscriber is completed once both streams are exhausted and the process has exited; the exit code is
+ * available from {@link #exitCode()}. Cancelling the subscription destroys the process.
+ * <p>
+ * This implements the Reactive Streams {@link Publisher}, which can be adapted to
+ * {@code java.util.concurrent.Flow.Publisher} with {@code org.reactivestreams.FlowAdapters} on Java 9+.
+ */
+public class OutputPublisher implements Publisher<OutputChunk> {
+    private final Callable<Process> _spawner;
+    private final boolean _lines;
+    private final AtomicBoolean _subscribed = new AtomicBoolean();
+    private final CompletableFuture<Integer> _exitCode = new CompletableFuture<>();
+
+    /**
+     * @param spawner Starts the process when the publisher is subscribed to.
+     * @param lines   Whether to emit one chunk per line rather than arbitrary runs of bytes.
+     */
+    OutputPublisher(Callable<Process> spawner, boolean lines) {
+        _spawner = spawner;
+        _lines = lines;
+    }
+
+    /**
+     * @return The exit code of the process, completed after all output has been published. Completed
+     * exceptionally if the process could not be started or its output could not be read.
+     */
+    public CompletableFuture<Integer> exitCode() {
+        return _exitCode;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super OutputChunk> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+
+        if (!_subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("OutputPublisher allows only one subscriber"));
+            return;
+        }
+
+        new Execution(subscriber).start();
+    }
+
+    private class Execution implements Subscription {
+        private final Subscriber<? super OutputChunk> _subscriber;
+
+        // guarded by this
+        private long _demand = 0;
+        private boolean _cancelled = false;
+        private int _openStreams = 2;
+
+        // guarded by _signalLock, so that signals are never concurrent
+        private final Object _signalLock = new Object();
+        private boolean _terminated = false;
+
+        private Process _process;
+
+        Execution(Subscriber<? super OutputChunk> subscriber) {
+            _subscriber = subscriber;
+        }
+
+        void start() {
+            try {
+                _process = _spawner.call();
+            } catch (Exception e) {
+                _subscriber.onSubscribe(this);
+                fail(e);
+                return;
+            }
+
+            _subscriber.onSubscribe(this);
+
+            drain(OutputChunk.Source.STDOUT, _process.getInputStream());
+            drain(OutputChunk.Source.STDERR, _process.getErrorStream());
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request must be positive (Reactive Streams rule 3.9), was " + n));
+                return;
+            }
+
+            synchronized (this) {
+                _demand += n;
+                if (_demand < 0) {
+                    // effectively unbounded
+                    _demand = Long.MAX_VALUE;
+                }
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                _cancelled = true;
+                notifyAll();
+            }
+            synchronized (_signalLock) {
+                _terminated = true;
+            }
+            if (_process != null) {
+                _process.destroy();
+            }
+            _exitCode.cancel(false);
+        }
+
+        private void drain(OutputChunk.Source source, InputStream in) {
+            Streams.DRAINERS.execute(() -> {
+                try {
+                    ChunkReader reader = _lines ? new LineReader(in) : new ByteReader(in);
+                    // read one chunk ahead, so end of stream is noticed without waiting for demand
+                    byte[] data;
+                    while ((data = reader.next()) != null && claimDemand()) {
+                        signalNext(new OutputChunk(source, data));
+                    }
+                    streamFinished();
+                } catch (IOException e) {
+                    fail(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                }
+            });
+        }
+
+        /**
+         * Block until the subscriber has requested at least one more chunk and reserve it.
+         *
+         * @return false if the subscription was cancelled
+         */
+        private synchronized boolean claimDemand() throws InterruptedException {
+            while (_demand == 0 && !_cancelled) {
+                wait();
+            }
+            if (_cancelled) {
+                return false;
+            }
+            if (_demand != Long.MAX_VALUE) {
+                _demand--;
+            }
+            return true;
+        }
+
+        private void streamFinished() throws InterruptedException {
+            synchronized (this) {
+                if (--_openStreams > 0 || _cancelled) {
+                    return;
+                }
+            }
+
+            int exitCode = _process.waitFor();
+            synchronized (_signalLock) {
+                if (_terminated) {
+                    return;
+                }
+                _terminated = true;
+                _exitCode.complete(exitCode);
+                _subscriber.onComplete();
+            }
+        }
+
+        private void signalNext(OutputChunk chunk) {
+            synchronized (_signalLock) {
+                if (!_terminated) {
+                    _subscriber.onNext(chunk);
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            synchronized (this) {
+                _cancelled = true;
+                notifyAll();
+            }
+            if (_process != null) {
+                _process.destroy();
+            }
+            synchronized (_signalLock) {
+                if (_terminated) {
+                    return;
+                }
+                _terminated = true;
+                _exitCode.completeExceptionally(t);
+                _subscriber.onError(t);
+            }
+        }
+    }
+
+    private interface ChunkReader {
+        /**
+         * @return The next chunk, or null at end of stream.
+         */
+        byte[] next() throws IOException;
+    }
+
+    private static class ByteReader implements ChunkReader {
+        private final InputStream _in;
+        private final byte[] _buf = new byte[Streams.BUFFER_SIZE];
+
+        ByteReader(InputStream in) {
+            _in = in;
+        }
+
+        @Override
+        public byte[] next() throws IOException {
+            int n = _in.read(_buf);
+            return n == -1 ? null : Arrays.copyOf(_buf, n);
+        }
+    }
+
+    private static class LineReader implements ChunkReader {
+        private final BufferedReader _in;
+
+        LineReader(InputStream in) {
+            _in = new BufferedReader(new InputStreamReader(in), Streams.BUFFER_SIZE);
+        }
+
+        @Override
+        public byte[] next() throws IOException {
+            String line = _in.readLine();
+            return line == null ? null : line.getBytes();
+        }
+    }
+}
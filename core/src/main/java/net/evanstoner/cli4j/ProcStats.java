@@ -0,0 +1,97 @@
+package net.evanstoner.cli4j;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reads process ids and resource usage of child processes on Linux.
+ */
+final class ProcStats {
+    /**
+     * Clock ticks per second used by /proc/[pid]/stat. This is USER_HZ, which is fixed at 100 in the
+     * kernel ABI on all mainstream architectures.
+     */
+    private static final long TICKS_PER_SECOND = 100;
+
+    private static final Path PROC = Paths.get("/proc");
+
+    static final boolean SUPPORTED = Files.isDirectory(PROC.resolve("self"));
+
+    private ProcStats() {
+    }
+
+    /**
+     * @return The pid of the process, or -1 if it can't be determined.
+     */
+    static long pid(Process p) {
+        try {
+            // Java 9+
+            Method pid = Process.class.getMethod("pid");
+            return (Long) pid.invoke(p);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // fall through
+        }
+        try {
+            // Java 8 UNIXProcess
+            Field pid = p.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(p);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Take a sample of the resource usage of a running process.
+     *
+     * @param pid      The process to sample.
+     * @param previous The previous sample, or null. Counters never go backwards, so if the process has
+     *                 already gone the previous sample is returned.
+     * @return The new sample, or previous if the process couldn't be read.
+     */
+    static ResourceUsage sample(long pid, ResourceUsage previous) {
+        if (!SUPPORTED || pid < 0) {
+            return previous;
+        }
+
+        try {
+            Path dir = PROC.resolve(Long.toString(pid));
+            String stat = new String(Files.readAllBytes(dir.resolve("stat")), StandardCharsets.US_ASCII);
+            List<String> status = Files.readAllLines(dir.resolve("status"), StandardCharsets.US_ASCII);
+
+            // the command name is in parentheses and may contain spaces, so split after it. fields
+            // after ')' start at field 3 (state); utime is field 14.
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            Duration utime = ticks(fields[11]);
+            Duration stime = ticks(fields[12]);
+            Duration cutime = ticks(fields[13]);
+            Duration cstime = ticks(fields[14]);
+
+            long peakRss = previous == null ? 0 : previous.getPeakRssBytes();
+            for (String line : status) {
+                if (line.startsWith("VmHWM:")) {
+                    // e.g. "VmHWM:	    1234 kB"
+                    String kb = line.substring("VmHWM:".length()).replace("kB", "").trim();
+                    peakRss = Math.max(peakRss, Long.parseLong(kb) * 1024);
+                    break;
+                }
+            }
+
+            return new ResourceUsage(utime, stime, cutime, cstime, peakRss);
+        } catch (IOException | RuntimeException e) {
+            // the process exited between samples, or this isn't a Linux /proc
+            return previous;
+        }
+    }
+
+    private static Duration ticks(String value) {
+        return Duration.ofMillis(Long.parseLong(value) * 1000 / TICKS_PER_SECOND);
+    }
+}
@@ -0,0 +1,130 @@
+package net.evanstoner.cli4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The default {@link ProcessLauncher}, which starts processes with a {@link ProcessBuilder}.
+ * <p>
+ * A launcher can carry an {@link ExecProfile} of its own which applies to every process it starts, with
+ * each command's profile layered on top. When neither changes the environment the child inherits the
+ * JVM's as is; otherwise the profile's precomputed environment is handed over without copying
+ * {@link System#getenv()} for each launch.
+ */
+public class ProcessBuilderLauncher implements ProcessLauncher {
+    /**
+     * How the JDK creates child processes on Linux and other Unixes. See
+     * {@link #useLaunchMechanism(LaunchMechanism)}.
+     */
+    public enum LaunchMechanism {
+        /**
+         * posix_spawn through the jspawnhelper executable. The default on JDK 12+; needs JDK 9+ on Linux.
+         */
+        POSIX_SPAWN,
+        /**
+         * vfork, which shares the parent's memory until exec. The default on JDK 8 to 11 on Linux.
+         */
+        VFORK,
+        /**
+         * fork, which copies the parent's page tables and gets slower as the heap grows.
+         */
+        FORK
+    }
+
+    static final String LAUNCH_MECHANISM_PROPERTY = "jdk.lang.Process.launchMechanism";
+
+    private static final AtomicBoolean LAUNCHED = new AtomicBoolean();
+
+    private final ExecProfile _profile;
+
+    /**
+     * A launcher which starts processes in the JVM's working directory with its environment.
+     */
+    public ProcessBuilderLauncher() {
+        this(ExecProfile.EMPTY);
+    }
+
+    /**
+     * @param directory   The working directory for processes, or null for the JVM's.
+     * @param environment Variables to set on top of the JVM's environment. A null value removes the
+     *                    variable. The map is copied.
+     */
+    public ProcessBuilderLauncher(File directory, Map<String, String> environment) {
+        this(ExecProfile.of(directory, environment));
+    }
+
+    /**
+     * @param profile Applied to every process, beneath the profile of the command being launched.
+     */
+    public ProcessBuilderLauncher(ExecProfile profile) {
+        _profile = profile;
+    }
+
+    /**
+     * Choose how the JDK launches processes. This is a JVM-wide setting which the JDK reads once, when
+     * the first process is started, so call it during startup.
+     *
+     * @param mechanism The mechanism to use.
+     * @throws IllegalStateException    If a ProcessBuilderLauncher has already started a process.
+     * @throws IllegalArgumentException If the mechanism isn't available on this JDK and platform.
+     */
+    public static void useLaunchMechanism(LaunchMechanism mechanism) {
+        if (LAUNCHED.get()) {
+            throw new IllegalStateException("the launch mechanism is fixed once the first process has started");
+        }
+
+        String os = System.getProperty("os.name").toLowerCase();
+        if (os.contains("win")) {
+            throw new IllegalArgumentException("the launch mechanism can't be chosen on Windows");
+        }
+        boolean java8 = System.getProperty("java.specification.version").startsWith("1.");
+        if (mechanism == LaunchMechanism.POSIX_SPAWN && java8 && os.contains("linux")) {
+            throw new IllegalArgumentException("POSIX_SPAWN needs JDK 9 or later on Linux");
+        }
+        if (mechanism == LaunchMechanism.VFORK && !os.contains("linux")) {
+            throw new IllegalArgumentException("VFORK is only available on Linux");
+        }
+
+        System.setProperty(LAUNCH_MECHANISM_PROPERTY, mechanism.name());
+    }
+
+    public File getDirectory() {
+        return _profile.getDirectory();
+    }
+
+    /**
+     * @return The environment overrides, with null values for removed variables.
+     */
+    public Map<String, String> getEnvironment() {
+        return _profile.getEnvironment();
+    }
+
+    public ExecProfile getProfile() {
+        return _profile;
+    }
+
+    @Override
+    public Process launch(List<String> command) throws IOException {
+        return launch(command, ExecProfile.EMPTY);
+    }
+
+    /**
+     * Start a process with the command's profile layered over this launcher's.
+     */
+    @Override
+    public Process launch(List<String> command, ExecProfile profile) throws IOException {
+        ExecProfile effective = _profile.overlay(profile);
+
+        LAUNCHED.set(true);
+        if (effective.isEmpty()) {
+            return new ProcessBuilder(command).start();
+        }
+        // Runtime.exec() is the only public way to hand a ProcessBuilder a complete environment
+        // instead of a copy of the JVM's to edit
+        return Runtime.getRuntime().exec(command.toArray(new String[0]), effective.environmentBlock(),
+                effective.getDirectory());
+    }
+}
@@ -0,0 +1,43 @@
+package net.evanstoner.cli4j;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Starts the processes for {@link Command}s. Implementations can swap in a different launch strategy,
+ * add instrumentation, or fake processes entirely in tests.
+ * <p>
+ * A launcher is chosen per command with {@link Command#launcher(ProcessLauncher)}, which also applies
+ * to its subcommands, or globally with {@link Command#setDefaultLauncher(ProcessLauncher)}. The default
+ * is a {@link ProcessBuilderLauncher}.
+ * <p>
+ * Launchers are shared between threads and must be thread safe.
+ */
+public interface ProcessLauncher {
+    /**
+     * Start a process.
+     *
+     * @param command The program followed by its arguments.
+     * @return The started process.
+     * @throws IOException If the process couldn't be started.
+     */
+    Process launch(List<String> command) throws IOException;
+
+    /**
+     * Start a process with an {@link ExecProfile} applied. Launchers which can't honour a profile's
+     * working directory and environment don't need to override this; they can still start commands
+     * without one.
+     *
+     * @param command The program followed by its arguments.
+     * @param profile The profile of the command, which may be {@link ExecProfile#EMPTY}.
+     * @return The started process.
+     * @throws IOException                   If the process couldn't be started.
+     * @throws UnsupportedOperationException If the profile isn't empty and the launcher can't apply it.
+     */
+    default Process launch(List<String> command, ExecProfile profile) throws IOException {
+        if (!profile.isEmpty()) {
+            throw new UnsupportedOperationException(getClass().getName() + " doesn't support exec profiles");
+        }
+        return launch(command);
+    }
+}
@@ -0,0 +1,77 @@
+package net.evanstoner.cli4j;
+
+import java.time.Duration;
+
+/**
+ * CPU and memory used by a child process, as sampled from Linux {@code /proc} while it ran.
+ * <p>
+ * The JVM reaps its children as soon as they exit, so the final moments of a process can't be
+ * observed: values are the last sample taken, and are therefore lower bounds. Very short-lived
+ * processes may report zero.
+ */
+public class ResourceUsage {
+    private final Duration _userCpuTime;
+    private final Duration _systemCpuTime;
+    private final Duration _descendantsUserCpuTime;
+    private final Duration _descendantsSystemCpuTime;
+    private final long _peakRssBytes;
+
+    public ResourceUsage(Duration userCpuTime, Duration systemCpuTime,
+                         Duration descendantsUserCpuTime, Duration descendantsSystemCpuTime,
+                         long peakRssBytes) {
+        _userCpuTime = userCpuTime;
+        _systemCpuTime = systemCpuTime;
+        _descendantsUserCpuTime = descendantsUserCpuTime;
+        _descendantsSystemCpuTime = descendantsSystemCpuTime;
+        _peakRssBytes = peakRssBytes;
+    }
+
+    /**
+     * @return CPU time the process spent in user mode.
+     */
+    public Duration getUserCpuTime() {
+        return _userCpuTime;
+    }
+
+    /**
+     * @return CPU time the process spent in kernel mode.
+     */
+    public Duration getSystemCpuTime() {
+        return _systemCpuTime;
+    }
+
+    /**
+     * @return User CPU time of descendants which the process has already waited for.
+     */
+    public Duration getDescendantsUserCpuTime() {
+        return _descendantsUserCpuTime;
+    }
+
+    /**
+     * @return System CPU time of descendants which the process has already waited for.
+     */
+    public Duration getDescendantsSystemCpuTime() {
+        return _descendantsSystemCpuTime;
+    }
+
+    /**
+     * @return User plus system CPU time of the process and its waited-for descendants.
+     */
+    public Duration getTotalCpuTime() {
+        return _userCpuTime.plus(_systemCpuTime).plus(_descendantsUserCpuTime).plus(_descendantsSystemCpuTime);
+    }
+
+    /**
+     * @return The peak resident set size of the process (VmHWM), in bytes.
+     */
+    public long getPeakRssBytes() {
+        return _peakRssBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{ \"user_cpu_ms\": %d, \"system_cpu_ms\": %d, \"descendants_cpu_ms\": %d, \"peak_rss_bytes\": %d }",
+                _userCpuTime.toMillis(), _systemCpuTime.toMillis(),
+                _descendantsUserCpuTime.plus(_descendantsSystemCpuTime).toMillis(), _peakRssBytes);
+    }
+}
@@ -0,0 +1,107 @@
+package net.evanstoner.cli4j;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class Result {
+
+    private int _exitCode;
+    private String _output;
+    private String _errOutput;
+
+    private long _pid = -1;
+    private Instant _startTime;
+    private Duration _duration;
+    private ResourceUsage _resourceUsage;
+
+    public Result(int exitCode, String output) {
+        this(exitCode, output, null);
+    }
+
+    public Result(int exitCode, String output, String errOutput) {
+        _exitCode = exitCode;
+        _output = output;
+        _errOutput = errOutput;
+    }
+
+    /**
+     * @param pid           The process id of the child, or -1 if unknown.
+     * @param startTime     When the child was started.
+     * @param duration      Wall-clock time from starting the child until its output was drained and it
+     *                      exited.
+     * @param resourceUsage CPU and memory used by the child, or null if unavailable.
+     */
+    public Result(int exitCode, String output, String errOutput,
+                  long pid, Instant startTime, Duration duration, ResourceUsage resourceUsage) {
+        this(exitCode, output, errOutput);
+        _pid = pid;
+        _startTime = startTime;
+        _duration = duration;
+        _resourceUsage = resourceUsage;
+    }
+
+    public int getExitCode() {
+        return _exitCode;
+    }
+
+    public String getOutput() {
+        return _output;
+    }
+
+    public String getErrorOutput() {
+        return _errOutput;
+    }
+
+    /**
+     * @return The process id of the child, or -1 if unknown.
+     */
+    public long getPid() {
+        return _pid;
+    }
+
+    /**
+     * @return When the child was started, or null if unknown.
+     */
+    public Instant getStartTime() {
+        return _startTime;
+    }
+
+    /**
+     * @return Wall-clock duration of the execution, or null if unknown.
+     */
+    public Duration getDuration() {
+        return _duration;
+    }
+
+    /**
+     * @return CPU and memory used by the child, or null if it couldn't be sampled (e.g. not on Linux).
+     */
+    public ResourceUsage getResourceUsage() {
+        return _resourceUsage;
+    }
+
+    public boolean hasResourceUsage() {
+        return _resourceUsage != null;
+    }
+
+    public boolean isSuccessful() {
+        return _exitCode == 0;
+    }
+
+    public boolean hasOutput() {
+        return _output != null && _output.length() > 0;
+    }
+
+    public boolean hasErrorOutput() {
+        return _errOutput != null && _errOutput.length() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{\n" +
+                "  \"exit_code\" : %d,\n" +
+                "  \"stdout\": %s,\n" +
+                "  \"stderr\": %s\n" +
+                "}", _exitCode, _output, _errOutput);
+    }
+}
\ No newline at end of file
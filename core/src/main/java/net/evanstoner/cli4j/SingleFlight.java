@@ -0,0 +1,89 @@
+package net.evanstoner.cli4j;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent executions of identical commands: while one execution for a key is in flight,
+ * callers with the same key wait for it and share its {@link Result} instead of starting another
+ * process. Nothing is cached once the execution finishes.
+ */
+final class SingleFlight {
+    interface Execution {
+        Result exec() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Completes a flight whose leader was interrupted, telling followers to try again themselves
+     * rather than failing with an interruption that wasn't theirs.
+     */
+    private static final class LeaderInterrupted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        LeaderInterrupted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final ConcurrentHashMap<Object, CompletableFuture<Result>> _inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key       Identifies the execution; equal keys must produce equivalent processes.
+     * @param execution Runs the command if no identical execution is in flight.
+     */
+    Result exec(Object key, Execution execution) throws IOException, InterruptedException {
+        while (true) {
+            CompletableFuture<Result> flight = new CompletableFuture<>();
+            CompletableFuture<Result> leader = _inFlight.putIfAbsent(key, flight);
+
+            if (leader == null) {
+                return lead(key, flight, execution);
+            }
+
+            try {
+                return leader.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof LeaderInterrupted) {
+                    continue;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    private Result lead(Object key, CompletableFuture<Result> flight, Execution execution)
+            throws IOException, InterruptedException {
+        try {
+            Result r = execution.exec();
+            flight.complete(r);
+            return r;
+        } catch (InterruptedException e) {
+            flight.completeExceptionally(new LeaderInterrupted());
+            throw e;
+        } catch (IOException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            _inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return The number of distinct executions currently in flight.
+     */
+    int inFlight() {
+        return _inFlight.size();
+    }
+}
@@ -0,0 +1,69 @@
+package net.evanstoner.cli4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Helpers for reading the pipes of child processes.
+ */
+final class Streams {
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Threads used to read process pipes in the background. Daemon threads, so a forgotten child
+     * never keeps the JVM alive.
+     */
+    static final ExecutorService DRAINERS = Executors.newCachedThreadPool(daemonThreads("cli4j-drain-"));
+
+    private Streams() {
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Kill a process whose output won't be read, and release its pipes.
+     */
+    static void discard(Process p) {
+        p.destroy();
+        closeQuietly(p.getOutputStream());
+        closeQuietly(p.getInputStream());
+        closeQuietly(p.getErrorStream());
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException e) {
+            // nothing more to release
+        }
+    }
+
+    /**
+     * Read a stream until end of file.
+     *
+     * @param in The stream to read. It is not closed.
+     * @return Everything that was read.
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,190 @@
+package net.evanstoner.cli4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a command on a schedule and reports only what changed in its output. Created with
+ * {@link Command#watch(Duration)}.
+ * <pre>
+ * Watcher w = novaList.watch(Duration.ofSeconds(5))
+ *         .keyedBy(line -&gt; line.startsWith("| ") ? line.split("\\|")[1].trim() : null)
+ *         .start(diff -&gt; System.out.println(diff));
+ * </pre>
+ * The first run reports every line as added. After that the listener is only called when the lines
+ * of output or the exit code differ from the previous run; an identical output is detected with a
+ * single string comparison, without splitting it into lines, and output which was only reordered
+ * counts as unchanged. While the output stays the same the interval doubles
+ * after each run, up to the maximum interval, and it drops back to the base interval as soon as
+ * something changes.
+ * <p>
+ * Runs never overlap: the next run is scheduled after the previous one finishes.
+ */
+public class Watcher implements Closeable {
+    private final Command _command;
+    private final Duration _interval;
+    private Duration _maxInterval;
+    private Function<String, String> _key = null;
+    private Consumer<Exception> _errorListener = e -> {
+    };
+
+    private Consumer<OutputDiff> _listener;
+    private ScheduledExecutorService _scheduler;
+
+    // only touched by the scheduler thread
+    private String _previousOutput = null;
+    private List<String> _previousLines = Collections.emptyList();
+    private int _previousExitCode;
+    private volatile Duration _currentInterval;
+
+    Watcher(Command command, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        _command = command;
+        _interval = interval;
+        _maxInterval = interval.multipliedBy(8);
+        _currentInterval = interval;
+    }
+
+    /**
+     * Set the longest interval to back off to while the output is unchanged.
+     * <p>
+     * Defaults to eight times the base interval. Set it to the base interval to poll at a fixed rate.
+     *
+     * @param maxInterval The maximum interval.
+     * @return this
+     */
+    public Watcher maxInterval(Duration maxInterval) {
+        if (maxInterval.compareTo(_interval) < 0) {
+            throw new IllegalArgumentException("maxInterval must not be shorter than the interval");
+        }
+        _maxInterval = maxInterval;
+        return this;
+    }
+
+    /**
+     * Identify lines by a key, so that a line whose content changes is reported as changed rather than
+     * removed and re-added.
+     *
+     * @param key Extracts the key of a line, such as the ID column of a table. Lines for which it
+     *            returns null or throws, such as table borders, are compared without a key.
+     * @return this
+     */
+    public Watcher keyedBy(Function<String, String> key) {
+        _key = key;
+        return this;
+    }
+
+    /**
+     * Set a listener for runs which couldn't be executed, or whose listener threw. The watcher keeps
+     * polling after an error.
+     *
+     * @param errorListener Receives the exception. Errors are wrapped in an {@link ExecutionException}.
+     * @return this
+     */
+    public Watcher onError(Consumer<Exception> errorListener) {
+        _errorListener = errorListener;
+        return this;
+    }
+
+    /**
+     * Start polling. The first run happens immediately.
+     *
+     * @param listener Receives the differences after each run which changed something.
+     * @return this
+     */
+    public synchronized Watcher start(Consumer<OutputDiff> listener) {
+        if (_scheduler != null) {
+            throw new IllegalStateException("watcher already started");
+        }
+        _listener = listener;
+        _scheduler = Executors.newSingleThreadScheduledExecutor(Streams.daemonThreads("cli4j-watch-"));
+        _scheduler.execute(this::poll);
+        return this;
+    }
+
+    /**
+     * Stop polling. A run in progress is interrupted and its process destroyed.
+     */
+    @Override
+    public synchronized void close() {
+        if (_scheduler != null) {
+            _scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The interval until the next run, which grows while the output is unchanged.
+     */
+    public Duration getCurrentInterval() {
+        return _currentInterval;
+    }
+
+    private void poll() {
+        try {
+            Result result = _command.exec();
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            boolean first = _previousOutput == null;
+            int previousExitCode = _previousExitCode;
+            OutputDiff diff = changed(result) ? diff(result) : null;
+
+            if (diff != null && (first || !diff.isEmpty() || result.getExitCode() != previousExitCode)) {
+                _currentInterval = _interval;
+                _listener.accept(diff);
+            } else {
+                Duration doubled = _currentInterval.multipliedBy(2);
+                _currentInterval = doubled.compareTo(_maxInterval) > 0 ? _maxInterval : doubled;
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } catch (Exception e) {
+            _errorListener.accept(e);
+        } catch (Throwable t) {
+            _errorListener.accept(new ExecutionException(t));
+        } finally {
+            // even if the error listener threw
+            reschedule();
+        }
+    }
+
+    private synchronized void reschedule() {
+        if (!_scheduler.isShutdown()) {
+            _scheduler.schedule(this::poll, _currentInterval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean changed(Result result) {
+        return _previousOutput == null
+                || result.getExitCode() != _previousExitCode
+                || !_previousOutput.equals(result.getOutput());
+    }
+
+    private OutputDiff diff(Result result) {
+        String output = result.getOutput();
+        List<String> lines = output.isEmpty()
+                ? Collections.emptyList()
+                : Arrays.asList(output.split("\\r?\\n"));
+
+        OutputDiff diff = _key == null
+                ? OutputDiff.between(result, _previousLines, lines)
+                : OutputDiff.between(result, _previousLines, lines, _key);
+
+        _previousOutput = output;
+        _previousLines = lines;
+        _previousExitCode = result.getExitCode();
+        return diff;
+    }
+}
@@ -0,0 +1,298 @@
+package net.evanstoner.cli4j;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a command over a large list of arguments the way xargs does: the arguments are appended to the
+ * end of the command line, split across as many invocations as it takes to stay within the kernel's
+ * limits on the size of argv and the environment, and the invocations run in parallel.
+ * <pre>
+ * Result r = new Xargs(grep).maxArgs(500).parallelism(4).exec(files);
+ * </pre>
+ * The outputs of all invocations are joined in argument order.
+ */
+public class Xargs {
+    /**
+     * The kernel's default limit on argv plus environment (ARG_MAX), which is a quarter of the default
+     * 8 MiB stack.
+     */
+    public static final long DEFAULT_ARG_MAX = 2 * 1024 * 1024;
+
+    /**
+     * The default limit on the size of the command line, which is what GNU xargs uses.
+     */
+    public static final long DEFAULT_MAX_COMMAND_LENGTH = 128 * 1024;
+
+    /**
+     * Each argv and envp entry also costs a pointer.
+     */
+    private static final int POINTER_SIZE = 8;
+
+    /**
+     * Headroom POSIX asks to be left for the child to modify its environment.
+     */
+    private static final int HEADROOM = 2048;
+
+    private final Command _command;
+    private int _maxArgs = 0;
+    private long _maxCommandLength = DEFAULT_MAX_COMMAND_LENGTH;
+    private long _argMax = DEFAULT_ARG_MAX;
+    private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param command The command to run. Its options and arguments are rendered before the partitioned
+     *                arguments on every invocation.
+     */
+    public Xargs(Command command) {
+        _command = command;
+    }
+
+    /**
+     * Set the maximum number of partitioned arguments per invocation.
+     * <p>
+     * Defaults to 0, which only limits invocations by size.
+     *
+     * @param maxArgs The maximum count, or 0 for no limit.
+     * @return this
+     */
+    public Xargs maxArgs(int maxArgs) {
+        if (maxArgs < 0) {
+            throw new IllegalArgumentException("maxArgs must not be negative");
+        }
+        _maxArgs = maxArgs;
+        return this;
+    }
+
+    /**
+     * Set the maximum size in bytes of the argv of each invocation, counting the terminating NUL and
+     * pointer of every argument.
+     * <p>
+     * Defaults to {@link #DEFAULT_MAX_COMMAND_LENGTH}.
+     *
+     * @param bytes The maximum size.
+     * @return this
+     */
+    public Xargs maxCommandLength(long bytes) {
+        _maxCommandLength = bytes;
+        return this;
+    }
+
+    /**
+     * Set the kernel's ARG_MAX, if it differs from the default. argv and the environment together must
+     * fit within it.
+     * <p>
+     * Defaults to {@link #DEFAULT_ARG_MAX}.
+     *
+     * @param bytes The value of ARG_MAX (see getconf ARG_MAX).
+     * @return this
+     */
+    public Xargs argMax(long bytes) {
+        _argMax = bytes;
+        return this;
+    }
+
+    /**
+     * Set how many invocations may run at once.
+     * <p>
+     * Defaults to the number of available processors.
+     *
+     * @param parallelism The concurrency cap.
+     * @return this
+     */
+    public Xargs parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        _parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Run the command over all of the arguments. Like xargs, the command runs once even if there are
+     * no arguments.
+     *
+     * @param args The arguments to partition.
+     * @return A combined result: the outputs of every invocation joined by newlines in argument order,
+     * the exit code of the first invocation that failed (or 0), summed CPU time and the largest peak
+     * RSS.
+     */
+    public Result exec(List<String> args) throws IOException, InterruptedException {
+        List<List<String>> partitions = partition(args);
+
+        Instant startTime = Instant.now();
+        long start = System.nanoTime();
+
+        List<Result> results = new ArrayList<>(partitions.size());
+        if (partitions.size() == 1) {
+            results.add(invocation(partitions.get(0)).exec());
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(_parallelism, partitions.size()),
+                    Streams.daemonThreads("cli4j-xargs-"));
+            try {
+                List<Future<Result>> futures = new ArrayList<>(partitions.size());
+                for (List<String> partition : partitions) {
+                    Command c = invocation(partition);
+                    futures.add(pool.submit(c::exec));
+                }
+                for (Future<Result> f : futures) {
+                    results.add(f.get());
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        return merge(results, startTime, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Split the arguments into invocations which fit within the configured limits.
+     *
+     * @throws IllegalArgumentException if a single argument can't fit on the command line
+     */
+    List<List<String>> partition(List<String> args) {
+        long limit = Math.min(_maxCommandLength, _argMax - environmentSize(_command.effectiveProfile()) - HEADROOM);
+        long base = argvSize(_command.build());
+
+        if (base >= limit) {
+            throw new IllegalArgumentException("command line is already longer than " + limit + " bytes");
+        }
+
+        if (args.isEmpty()) {
+            return Collections.singletonList(Collections.emptyList());
+        }
+
+        List<List<String>> partitions = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        long size = base;
+
+        for (String arg : args) {
+            long cost = argvSize(arg);
+            if (base + cost > limit) {
+                throw new IllegalArgumentException("argument is too long for the command line: " + arg);
+            }
+
+            boolean full = size + cost > limit || (_maxArgs > 0 && current.size() == _maxArgs);
+            if (full) {
+                partitions.add(current);
+                current = new ArrayList<>();
+                size = base;
+            }
+
+            current.add(arg);
+            size += cost;
+        }
+        partitions.add(current);
+
+        return partitions;
+    }
+
+    private Command invocation(List<String> args) {
+        if (args.isEmpty()) {
+            return _command;
+        }
+        // the arguments become a child of the command, so they're rendered after everything else
+        return new Command(String.join(" ", args), _command) {
+        };
+    }
+
+    /**
+     * @return The bytes the words of a command line occupy in argv, as split by Runtime.exec().
+     */
+    private static long argvSize(String commandLine) {
+        long size = 0;
+        StringTokenizer st = new StringTokenizer(commandLine);
+        while (st.hasMoreTokens()) {
+            size += st.nextToken().getBytes(Charset.defaultCharset()).length + 1 + POINTER_SIZE;
+        }
+        return size;
+    }
+
+    /**
+     * @return The bytes the child's environment occupies, with the command's profile applied.
+     */
+    private static long environmentSize(ExecProfile profile) {
+        long size = 0;
+        String[] block = profile.environmentBlock();
+        if (block == null) {
+            for (Map.Entry<String, String> e : System.getenv().entrySet()) {
+                // "KEY=value\0"
+                size += e.getKey().length() + e.getValue().length() + 2 + POINTER_SIZE;
+            }
+        } else {
+            for (String entry : block) {
+                size += entry.length() + 1 + POINTER_SIZE;
+            }
+        }
+        return size;
+    }
+
+    private static Result merge(List<Result> results, Instant startTime, Duration duration) {
+        int exitCode = 0;
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+
+        Duration user = Duration.ZERO;
+        Duration system = Duration.ZERO;
+        Duration descendantsUser = Duration.ZERO;
+        Duration descendantsSystem = Duration.ZERO;
+        long peakRss = 0;
+        boolean hasUsage = false;
+
+        for (Result r : results) {
+            if (exitCode == 0) {
+                exitCode = r.getExitCode();
+            }
+            append(out, r.getOutput());
+            append(err, r.getErrorOutput());
+
+            ResourceUsage u = r.getResourceUsage();
+            if (u != null) {
+                hasUsage = true;
+                user = user.plus(u.getUserCpuTime());
+                system = system.plus(u.getSystemCpuTime());
+                descendantsUser = descendantsUser.plus(u.getDescendantsUserCpuTime());
+                descendantsSystem = descendantsSystem.plus(u.getDescendantsSystemCpuTime());
+                peakRss = Math.max(peakRss, u.getPeakRssBytes());
+            }
+        }
+
+        ResourceUsage usage = hasUsage
+                ? new ResourceUsage(user, system, descendantsUser, descendantsSystem, peakRss)
+                : null;
+        long pid = results.size() == 1 ? results.get(0).getPid() : -1;
+
+        return new Result(exitCode, out.toString(), err.toString(), pid, startTime, duration, usage);
+    }
+
+    private static void append(StringBuilder sb, String output) {
+        if (output == null || output.isEmpty()) {
+            return;
+        }
+        if (sb.length() > 0) {
+            sb.append(System.lineSeparator());
+        }
+        sb.append(output);
+    }
+}
@@ -0,0 +1,18 @@
+package net.evanstoner.cli4j.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a {@link Subcommand} method to a long option.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Long {
+    /**
+     * @return The name of the option as it should appear in the command, but without the prefix.
+     */
+    String value();
+}
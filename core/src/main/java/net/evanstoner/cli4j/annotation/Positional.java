@@ -0,0 +1,20 @@
+package net.evanstoner.cli4j.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a single-parameter {@link Subcommand} method to a positional argument. Arguments are rendered
+ * in ascending index order after all options. A String[] or String... parameter renders its elements
+ * as consecutive arguments in the place of that index.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Positional {
+    /**
+     * @return The index of the argument.
+     */
+    int value();
+}
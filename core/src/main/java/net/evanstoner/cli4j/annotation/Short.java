@@ -0,0 +1,19 @@
+package net.evanstoner.cli4j.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a {@link Subcommand} method to a short option. Methods without parameters are flags, which are
+ * combined behind a single prefix (e.g. "-az").
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Short {
+    /**
+     * @return The name of the option as it should appear in the command, but without the prefix.
+     */
+    String value();
+}
@@ -0,0 +1,46 @@
+package net.evanstoner.cli4j.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface from which the cli4j-processor generates a {@link net.evanstoner.cli4j.Command}
+ * subclass at compile time.
+ * <p>
+ * The generated class is named after the interface with a "Command" suffix, lives in the same package
+ * and implements the interface. Every method of the interface must be annotated with {@link Long},
+ * {@link Short} or {@link Positional} and return the interface type, so calls can be chained. A
+ * method with no parameters sets a flag; a method with one parameter sets the value of an option or
+ * argument.
+ * <p>
+ * {@link Long} and {@link Short} share their names with classes in {@code java.lang}, so import them
+ * by name rather than with a wildcard.
+ * <pre>
+ * &#64;Subcommand("add-fixed-ip")
+ * public interface AddFixedIp {
+ *     &#64;Positional(0)
+ *     AddFixedIp server(String serverNameOrId);
+ *
+ *     &#64;Positional(1)
+ *     AddFixedIp networkId(String networkId);
+ * }
+ *
+ * Result r = new AddFixedIpCommand(nova).server("my-server").networkId("some-uuid").exec();
+ * </pre>
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Subcommand {
+    /**
+     * @return The executable or subcommand name (e.g. "nova", "add-fixed-ip").
+     */
+    String value();
+
+    String longOptsPrefix() default "--";
+
+    String longOptsGlue() default " ";
+
+    String shortOptsPrefix() default "-";
+}
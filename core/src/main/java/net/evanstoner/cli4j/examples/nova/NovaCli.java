@@ -0,0 +1,22 @@
+package net.evanstoner.cli4j.examples.nova;
+
+import net.evanstoner.cli4j.Command;
+import net.evanstoner.cli4j.ExecProfile;
+
+public class NovaCli extends Command {
+
+    public NovaCli(String username, String password, String tenantName, String authUrl) {
+        super("nova");
+        // credentials go in the environment, where they don't show up in ps output
+        profile(ExecProfile.EMPTY
+                .withEnv("OS_USERNAME", username)
+                .withEnv("OS_PASSWORD", password)
+                .withEnv("OS_TENANT_NAME", tenantName)
+                .withEnv("OS_AUTH_URL", authUrl));
+    }
+
+    public AddFixedIpCommand addFixedIp() {
+        return new AddFixedIpCommand(this);
+    }
+
+}
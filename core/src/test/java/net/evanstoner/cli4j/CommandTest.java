@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.Paths;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class CommandTest {
 
@@ -69,6 +70,24 @@ public class CommandTest {
         assertTrue(r.getOutput().contains("src" + System.lineSeparator()));
     }
 
+    @Test
+    public void execRecordsTimingAndResourceUsage() throws IOException, InterruptedException {
+        assumeTrue(OS.contains("linux"));
+
+        Command sleep = new Command("sleep") {
+        };
+        sleep.positional(0, "0.3");
+
+        Result r = sleep.exec();
+
+        assertTrue(r.isSuccessful());
+        assertTrue(r.getPid() > 0);
+        assertNotNull(r.getStartTime());
+        assertTrue(r.getDuration().toMillis() >= 300);
+        assertTrue(r.hasResourceUsage());
+        assertTrue(r.getResourceUsage().getPeakRssBytes() > 0);
+    }
+
     @Test
     public void positionalFirstThenNamedArgs() throws IOException, InterruptedException {
         Command curl = new Command("curl") {
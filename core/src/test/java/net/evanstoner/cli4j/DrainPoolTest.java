@@ -0,0 +1,210 @@
+package net.evanstoner.cli4j;
+
+import net.evanstoner.cli4j.stub.StubCli;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class DrainPoolTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private DrainPool _pool;
+
+    @Before
+    public void setUp() {
+        assumeTrue(OS.contains("linux"));
+        _pool = new DrainPool(1);
+    }
+
+    @After
+    public void tearDown() {
+        if (_pool != null) {
+            _pool.close();
+        }
+        Command.setDefaultDrainPool(null);
+    }
+
+    private Command stub(String... args) {
+        return new Command(StubCli.command(args)) {
+        }.drainPool(_pool);
+    }
+
+    private static long drainThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("cli4j-drain-") && t.getState() == Thread.State.RUNNABLE)
+                .count();
+    }
+
+    @Test(timeout = 60_000)
+    public void collectsInterleavedOutput() throws Exception {
+        Result r = stub("--lines", "10000", "--stderr-every", "10", "--exit", "2").exec();
+
+        assertEquals(2, r.getExitCode());
+        String[] out = r.getOutput().split("\n");
+        String[] err = r.getErrorOutput().split("\n");
+        assertEquals(10000, out.length);
+        assertEquals(1000, err.length);
+        assertEquals("line 9999", out[9999]);
+        assertEquals("error 9999", err[999]);
+    }
+
+    @Test(timeout = 60_000)
+    public void keepsFullPipesFlowing() throws Exception {
+        // far more than a pipe buffer on both streams, so the child blocks unless both are read
+        int bytes = 4 * 1024 * 1024;
+        Result r = stub("--stdout-bytes", String.valueOf(bytes), "--stderr-bytes", String.valueOf(bytes)).exec();
+
+        assertTrue(r.isSuccessful());
+        assertEquals(bytes, r.getOutput().length());
+        assertEquals(bytes, r.getErrorOutput().length());
+    }
+
+    @Test(timeout = 120_000)
+    public void servicesManyProcessesWithOneThread() throws Exception {
+        int processes = 32;
+        ExecutorService callers = Executors.newFixedThreadPool(processes);
+        try {
+            List<Future<Result>> results = new ArrayList<>();
+            for (int i = 0; i < processes; i++) {
+                Command c = stub("--lines", "50", "--line-rate", "100", "--exit", String.valueOf(i % 3));
+                results.add(callers.submit(c::exec));
+            }
+
+            // while they run, nobody is blocked reading a pipe on a thread of its own
+            Thread.sleep(200);
+            assertEquals(0, drainThreads());
+
+            for (int i = 0; i < processes; i++) {
+                Result r = results.get(i).get(1, TimeUnit.MINUTES);
+                assertEquals(i % 3, r.getExitCode());
+                assertEquals(50, r.getOutput().split("\n").length);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void subcommandsAndDefaultUseThePool() throws Exception {
+        Command parent = new Command("echo") {
+        }.drainPool(_pool);
+        Command child = new Command("hello", parent) {
+        };
+        assertEquals("hello", child.exec().getOutput());
+
+        Command.setDefaultDrainPool(_pool);
+        assertEquals("world", new Command("echo world") {
+        }.exec().getOutput());
+    }
+
+    @Test(timeout = 60_000)
+    public void closingHandsRunningExecutionsOff() throws Exception {
+        // more than a pipe buffer, written only after the pool is closed
+        File script = tmp.newFile("late.sh");
+        Files.write(script.toPath(), "sleep 1\nyes | head -c 1048576\n".getBytes(StandardCharsets.UTF_8));
+        Command late = new Command("sh " + script.getPath()) {
+        }.drainPool(_pool);
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<Result> result = caller.submit(late::exec);
+            Thread.sleep(300);
+            _pool.close();
+
+            Result r = result.get(30, TimeUnit.SECONDS);
+            assertTrue(r.isSuccessful());
+            // the trailing newline is trimmed
+            assertEquals(1048575, r.getOutput().length());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void closedPoolRejectsProcessesBeforeStartingThem() throws Exception {
+        ProcessLauncherTest.FakeLauncher launcher = new ProcessLauncherTest.FakeLauncher();
+        Command c = stub("--exit", "0").launcher(launcher);
+        _pool.close();
+
+        try {
+            c.exec();
+            fail("expected the closed pool to be rejected");
+        } catch (IllegalStateException e) {
+            assertTrue(launcher.launched.isEmpty());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void endlessProducerDoesNotHoldTheThread() throws Exception {
+        // a pipe which always has more to read, like a child writing as fast as it is drained
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 'y';
+            }
+
+            @Override
+            public int available() {
+                return Streams.BUFFER_SIZE;
+            }
+        };
+        Process running = new ProcessLauncherTest.FakeProcess(0, "", "") {
+            @Override
+            public InputStream getInputStream() {
+                return endless;
+            }
+
+            @Override
+            public int exitValue() {
+                throw new IllegalThreadStateException("running");
+            }
+        };
+
+        DrainPool.Drain drain = new DrainPool.Drain(running);
+        assertTrue(drain.pump(new byte[Streams.BUFFER_SIZE]));
+        assertFalse(drain.hasExited());
+    }
+
+    @Test(timeout = 60_000)
+    public void descendantHoldingAPipeDelaysOnlyItsOwnResult() throws Exception {
+        File script = tmp.newFile("background.sh");
+        Files.write(script.toPath(), "sleep 3 &\n".getBytes(StandardCharsets.UTF_8));
+        Command sh = new Command("sh " + script.getPath()) {
+        }.drainPool(_pool);
+
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<Result> background = caller.submit(sh::exec);
+            Thread.sleep(500);
+
+            long start = System.nanoTime();
+            assertEquals("hello", new Command("echo hello") {
+            }.drainPool(_pool).exec().getOutput());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+
+            assertTrue(background.get(1, TimeUnit.MINUTES).isSuccessful());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+}
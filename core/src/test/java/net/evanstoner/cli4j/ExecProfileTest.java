@@ -0,0 +1,180 @@
+package net.evanstoner.cli4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ExecProfileTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    class EnvCommand extends Command {
+        EnvCommand() {
+            super("env");
+        }
+    }
+
+    class PwdCommand extends Command {
+        PwdCommand(Command parent) {
+            super("pwd", parent);
+        }
+    }
+
+    @Test
+    public void withMethodsReturnNewProfiles() {
+        ExecProfile a = ExecProfile.EMPTY.withEnv("A", "1");
+        ExecProfile b = a.withEnv("B", "2");
+
+        assertTrue(ExecProfile.EMPTY.isEmpty());
+        assertEquals(Collections.singletonMap("A", "1"), a.getEnvironment());
+        assertEquals(2, b.getEnvironment().size());
+        assertNull(b.getDirectory());
+    }
+
+    @Test
+    public void overlayPrefersTheUpperProfile() {
+        File lower = new File("/lower");
+        File upper = new File("/upper");
+        ExecProfile base = ExecProfile.EMPTY.withEnv("A", "base").withEnv("B", "base").withDirectory(lower);
+
+        ExecProfile combined = base.overlay(ExecProfile.EMPTY.withEnv("B", "top").withoutEnv("A"));
+        assertEquals("top", combined.getEnvironment().get("B"));
+        assertTrue(combined.getEnvironment().containsKey("A"));
+        assertNull(combined.getEnvironment().get("A"));
+        assertEquals(lower, combined.getDirectory());
+
+        assertEquals(upper, base.overlay(ExecProfile.EMPTY.withDirectory(upper)).getDirectory());
+    }
+
+    @Test
+    public void overlayWithAnEmptyProfileAllocatesNothing() {
+        ExecProfile p = ExecProfile.EMPTY.withEnv("A", "1");
+        assertSame(p, p.overlay(ExecProfile.EMPTY));
+        assertSame(p, ExecProfile.EMPTY.overlay(p));
+    }
+
+    @Test
+    public void environmentBlockIsComputedOnce() {
+        ExecProfile p = ExecProfile.EMPTY.withEnv("CLI4J_TEST", "x");
+        String[] block = p.environmentBlock();
+
+        assertSame(block, p.environmentBlock());
+        assertTrue(Arrays.asList(block).contains("CLI4J_TEST=x"));
+        assertEquals(System.getenv().size() + 1, block.length);
+        assertNull(ExecProfile.EMPTY.withDirectory(new File("/")).environmentBlock());
+    }
+
+    @Test
+    public void toStringHidesValues() {
+        String s = ExecProfile.EMPTY.withEnv("OS_PASSWORD", "passw0rd").toString();
+        assertTrue(s.contains("OS_PASSWORD"));
+        assertFalse(s.contains("passw0rd"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNamesAreRejected() {
+        ExecProfile.EMPTY.withEnv("A=B", "c");
+    }
+
+    @Test
+    public void profileIsAppliedAtLaunch() throws Exception {
+        assumeTrue(OS.contains("linux"));
+
+        ExecProfile profile = ExecProfile.EMPTY.withEnv("CLI4J_SECRET", "hunter2");
+        EnvCommand env = new EnvCommand();
+        env.profile(profile);
+
+        Result r = env.exec();
+        assertTrue(r.getOutput().contains("CLI4J_SECRET=hunter2"));
+    }
+
+    @Test
+    public void removedVariablesAreNotInherited() throws Exception {
+        assumeTrue(OS.contains("linux") && System.getenv("PATH") != null);
+
+        EnvCommand env = new EnvCommand();
+        env.profile(ExecProfile.EMPTY.withoutEnv("HOME").withEnv("CLI4J_TEST", "1"));
+
+        List<String> lines = Arrays.asList(env.exec().getOutput().split("\n"));
+        for (String line : lines) {
+            assertFalse(line.startsWith("HOME="));
+        }
+    }
+
+    @Test
+    public void subcommandsLayerTheirProfileOverTheParents() throws Exception {
+        File dir = tmp.getRoot();
+        EnvCommand parent = new EnvCommand();
+        parent.profile(ExecProfile.EMPTY.withEnv("A", "parent").withEnv("B", "parent").withDirectory(dir));
+        PwdCommand child = new PwdCommand(parent);
+        child.profile(ExecProfile.EMPTY.withEnv("B", "child"));
+
+        ExecProfile effective = child.effectiveProfile();
+        assertEquals("parent", effective.getEnvironment().get("A"));
+        assertEquals("child", effective.getEnvironment().get("B"));
+        assertEquals(dir, effective.getDirectory());
+    }
+
+    @Test
+    public void layeredProfilesAreCombinedOnce() throws Exception {
+        List<ExecProfile> launched = new ArrayList<>();
+        ProcessLauncher recording = new ProcessLauncher() {
+            @Override
+            public Process launch(List<String> command) {
+                return launch(command, ExecProfile.EMPTY);
+            }
+
+            @Override
+            public Process launch(List<String> command, ExecProfile profile) {
+                launched.add(profile);
+                return new ProcessLauncherTest.FakeProcess(0, "", "");
+            }
+        };
+
+        EnvCommand parent = new EnvCommand();
+        parent.launcher(recording);
+        parent.profile(ExecProfile.EMPTY.withEnv("A", "parent"));
+        ExecProfile own = ExecProfile.EMPTY.withEnv("B", "child");
+
+        // a fresh subcommand per call, as fluent APIs tend to create them
+        for (int i = 0; i < 2; i++) {
+            PwdCommand child = new PwdCommand(parent);
+            child.profile(own);
+            child.exec();
+        }
+
+        assertEquals(2, launched.size());
+        assertSame(launched.get(0), launched.get(1));
+        assertSame(launched.get(0).environmentBlock(), launched.get(1).environmentBlock());
+    }
+
+    @Test
+    public void directoryIsAppliedAtLaunch() throws Exception {
+        assumeTrue(OS.contains("linux"));
+
+        PwdCommand pwd = new PwdCommand(null);
+        pwd.profile(ExecProfile.EMPTY.withDirectory(tmp.getRoot()));
+
+        assertEquals(tmp.getRoot().getCanonicalPath(), pwd.exec().getOutput());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void launchersWithoutProfileSupportRejectProfiles() throws Exception {
+        EnvCommand env = new EnvCommand();
+        env.launcher(new ProcessLauncherTest.FakeLauncher());
+        env.profile(ExecProfile.EMPTY.withEnv("A", "1"));
+        env.exec();
+    }
+}
@@ -0,0 +1,205 @@
+package net.evanstoner.cli4j;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class ExecSchedulerTest {
+
+    private final List<String> _started = new CopyOnWriteArrayList<>();
+    private final CountDownLatch _blocking = new CountDownLatch(1);
+    private final CountDownLatch _release = new CountDownLatch(1);
+    private ExecScheduler _scheduler;
+
+    /**
+     * A command which records when it starts instead of spawning a process.
+     */
+    private Command recording(String name) {
+        return new Command(name) {
+            @Override
+            public Result exec() {
+                _started.add(name);
+                return new Result(0, name);
+            }
+        };
+    }
+
+    /**
+     * Occupy the only slot of the scheduler until released.
+     */
+    private void block() throws InterruptedException {
+        _scheduler.submit(blocker(), ExecScheduler.Priority.NORMAL);
+        assertTrue(_blocking.await(10, TimeUnit.SECONDS));
+    }
+
+    private Command blocker() {
+        return new Command("blocker") {
+            @Override
+            public Result exec() throws InterruptedException {
+                _blocking.countDown();
+                _release.await();
+                return new Result(0, "blocker");
+            }
+        };
+    }
+
+    @After
+    public void close() {
+        if (_scheduler != null) {
+            _scheduler.close();
+        }
+    }
+
+    @Test
+    public void runsHighestPriorityFirst() throws Exception {
+        _scheduler = new ExecScheduler(1);
+        block();
+
+        CompletableFuture<Result> batch = _scheduler.submit(recording("batch"), ExecScheduler.Priority.BATCH);
+        _scheduler.submit(recording("normal"), ExecScheduler.Priority.NORMAL);
+        _scheduler.submit(recording("interactive"), ExecScheduler.Priority.INTERACTIVE);
+        assertEquals(3, _scheduler.getQueueDepth());
+
+        _release.countDown();
+        assertEquals("batch", batch.get(10, TimeUnit.SECONDS).getOutput());
+
+        assertEquals(java.util.Arrays.asList("interactive", "normal", "batch"), _started);
+        assertEquals(0, _scheduler.getQueueDepth());
+        assertEquals(4, _scheduler.getStartedCount());
+    }
+
+    @Test
+    public void runsEarliestDeadlineFirstWithinPriority() throws Exception {
+        _scheduler = new ExecScheduler(1);
+        block();
+
+        Instant now = Instant.now();
+        CompletableFuture<Result> none = _scheduler.submit(recording("none"), ExecScheduler.Priority.NORMAL);
+        _scheduler.submit(recording("later"), ExecScheduler.Priority.NORMAL, now.plusSeconds(60));
+        _scheduler.submit(recording("sooner"), ExecScheduler.Priority.NORMAL, now.plusSeconds(30));
+
+        _release.countDown();
+        none.get(10, TimeUnit.SECONDS);
+
+        assertEquals(java.util.Arrays.asList("sooner", "later", "none"), _started);
+    }
+
+    @Test
+    public void dropsWorkPastItsDeadline() throws Exception {
+        _scheduler = new ExecScheduler(1);
+        block();
+
+        CompletableFuture<Result> late = _scheduler.submit(recording("late"), ExecScheduler.Priority.INTERACTIVE,
+                Instant.now().plusMillis(50));
+        CompletableFuture<Result> expired = _scheduler.submit(recording("expired"), ExecScheduler.Priority.INTERACTIVE,
+                Instant.now().minusSeconds(1));
+
+        Thread.sleep(100);
+        _release.countDown();
+
+        assertTimedOut(late);
+        assertTimedOut(expired);
+        assertTrue(_started.isEmpty());
+        assertEquals(2, _scheduler.getDroppedCount());
+    }
+
+    @Test
+    public void recordsWaitTime() throws Exception {
+        _scheduler = new ExecScheduler(1);
+        block();
+        CompletableFuture<Result> queued = _scheduler.submit(recording("queued"), ExecScheduler.Priority.NORMAL);
+
+        Thread.sleep(100);
+        _release.countDown();
+        queued.get(10, TimeUnit.SECONDS);
+
+        assertTrue(_scheduler.getMaxWaitTime().toMillis() >= 100);
+        assertTrue(_scheduler.getAverageWaitTime().toMillis() >= 50);
+    }
+
+    @Test
+    public void propagatesExecFailure() throws Exception {
+        _scheduler = new ExecScheduler(2);
+        CompletableFuture<Result> f = _scheduler.submit(new Command("kfjndl") {
+        }, ExecScheduler.Priority.NORMAL);
+
+        try {
+            f.get(10, TimeUnit.SECONDS);
+            fail("exception not propagated");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void errorsDoNotCostAWorker() throws Exception {
+        _scheduler = new ExecScheduler(1);
+        CompletableFuture<Result> failed = _scheduler.submit(new Command("broken") {
+            @Override
+            public Result exec() {
+                throw new AssertionError("broken command");
+            }
+        }, ExecScheduler.Priority.NORMAL);
+
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            fail("error not propagated");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+
+        assertEquals("next", _scheduler.submit(recording("next"), ExecScheduler.Priority.NORMAL)
+                .get(10, TimeUnit.SECONDS).getOutput());
+    }
+
+    @Test
+    public void closeDestroysRunningProcesses() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"));
+
+        AtomicReference<Process> process = new AtomicReference<>();
+        CountDownLatch launched = new CountDownLatch(1);
+        Command sleep = new Command("sleep 60") {
+        }.launcher(command -> {
+            Process p = new ProcessBuilder(command).start();
+            process.set(p);
+            launched.countDown();
+            return p;
+        });
+
+        _scheduler = new ExecScheduler(1);
+        CompletableFuture<Result> f = _scheduler.submit(sleep, ExecScheduler.Priority.NORMAL);
+        assertTrue(launched.await(10, TimeUnit.SECONDS));
+
+        _scheduler.close();
+
+        assertTrue(process.get().waitFor(10, TimeUnit.SECONDS));
+        try {
+            f.get(10, TimeUnit.SECONDS);
+            fail("interruption not propagated");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+    }
+
+    private static void assertTimedOut(CompletableFuture<Result> f) throws Exception {
+        try {
+            f.get(10, TimeUnit.SECONDS);
+            fail("deadline not enforced");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+}
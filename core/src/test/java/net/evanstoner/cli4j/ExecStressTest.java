@@ -0,0 +1,230 @@
+package net.evanstoner.cli4j;
+
+import net.evanstoner.cli4j.stub.StubCli;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Drives the execution engine against {@link StubCli}. Sizes default to something quick enough for
+ * every build; the "stress" profile scales them up (mvn test -Pstress), as do the system properties
+ * below.
+ */
+public class ExecStressTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    private static final int PROCESSES = Integer.getInteger("cli4j.stress.processes", 64);
+    private static final int CONCURRENCY = Integer.getInteger("cli4j.stress.concurrency", 16);
+    private static final long BYTES = Long.getLong("cli4j.stress.bytes", 16L * 1024 * 1024);
+    private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("cli4j.stress.minThroughput", "1"));
+
+    @Before
+    public void requireLinux() {
+        // fd accounting uses /proc/self/fd
+        assumeTrue(OS.contains("linux"));
+    }
+
+    private static Command stub(String... args) {
+        return new Command(StubCli.command(args)) {
+        };
+    }
+
+    private static int openFileDescriptors() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds == null ? -1 : fds.length;
+    }
+
+    @Test(timeout = 120_000)
+    public void drainsLargeInterleavedOutput() throws Exception {
+        Result r = stub("--stdout-bytes", String.valueOf(BYTES), "--stderr-bytes", String.valueOf(BYTES)).exec();
+
+        assertTrue(r.isSuccessful());
+        assertEquals(BYTES, r.getOutput().length());
+        assertEquals(BYTES, r.getErrorOutput().length());
+    }
+
+    @Test(timeout = 60_000)
+    public void separatesInterleavedLines() throws Exception {
+        Result r = stub("--lines", "10000", "--stderr-every", "10").exec();
+
+        assertTrue(r.isSuccessful());
+        String[] out = r.getOutput().split("\n");
+        String[] err = r.getErrorOutput().split("\n");
+        assertEquals(10000, out.length);
+        assertEquals(1000, err.length);
+        assertEquals("line 0", out[0]);
+        assertEquals("line 9999", out[9999]);
+        assertEquals("error 9999", err[999]);
+    }
+
+    @Test(timeout = 60_000)
+    public void waitsForSlowExit() throws Exception {
+        Result r = stub("--lines", "20", "--line-rate", "100", "--delay-ms", "500", "--exit", "3").exec();
+
+        assertEquals(3, r.getExitCode());
+        assertEquals(20, r.getOutput().split("\n").length);
+        assertTrue(r.getDuration().toMillis() >= 600);
+    }
+
+    @Test(timeout = 600_000)
+    public void runsManyConcurrentProcesses() throws Exception {
+        runMany(null);
+    }
+
+    @Test(timeout = 600_000)
+    public void runsManyConcurrentProcessesOnADrainPool() throws Exception {
+        try (DrainPool drains = new DrainPool(2)) {
+            runMany(drains);
+        }
+    }
+
+    private static void runMany(DrainPool drains) throws Exception {
+        int fdsBefore = openFileDescriptors();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Result>> results = new ArrayList<>();
+        try (ExecScheduler scheduler = new ExecScheduler(CONCURRENCY)) {
+            for (int i = 0; i < PROCESSES; i++) {
+                Command c = stub("--stdout-bytes", "65536", "--lines", "100", "--stderr-every", "25", "--exit", String.valueOf(i % 4))
+                        .drainPool(drains);
+                results.add(scheduler.submit(c, ExecScheduler.Priority.NORMAL));
+            }
+
+            for (int i = 0; i < PROCESSES; i++) {
+                Result r = results.get(i).get(10, TimeUnit.MINUTES);
+                assertEquals(i % 4, r.getExitCode());
+                // "line 0\n" to "line 99\n", less the trailing newline trimmed by exec()
+                assertEquals(65536 + 10 * 7 + 90 * 8 - 1, r.getOutput().length());
+                assertEquals(4, r.getErrorOutput().split("\n").length);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double throughput = PROCESSES / seconds;
+
+        assertTrue(String.format("%.1f processes/s is below %.1f", throughput, MIN_THROUGHPUT), throughput >= MIN_THROUGHPUT);
+
+        // every pipe of every child has been closed
+        assertTrue("leaked file descriptors", openFileDescriptors() <= fdsBefore + 4);
+    }
+
+    @Test(timeout = 60_000)
+    public void releasesFileDescriptors() throws Exception {
+        Command echo = new Command("echo") {
+        };
+        echo.positional(0, "hello");
+
+        // warm up lazily opened files (jars, /proc) before counting
+        echo.exec();
+        int fdsBefore = openFileDescriptors();
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(echo.exec().isSuccessful());
+        }
+
+        assertTrue("leaked file descriptors", openFileDescriptors() <= fdsBefore + 4);
+    }
+
+    @Test(timeout = 300_000)
+    public void publisherKeepsMemoryBounded() throws Exception {
+        long bytes = BYTES * 4;
+        long baseline = usedHeapAfterGc();
+        AtomicLong received = new AtomicLong();
+        AtomicLong peakHeap = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+
+        OutputPublisher publisher = stub("--stdout-bytes", String.valueOf(bytes)).publish();
+        publisher.subscribe(new Subscriber<OutputChunk>() {
+            private Subscription _s;
+            private long _chunks;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                _s = s;
+                s.request(16);
+            }
+
+            @Override
+            public void onNext(OutputChunk chunk) {
+                received.addAndGet(chunk.length());
+                if (++_chunks % 16 == 0) {
+                    if (_chunks % 1024 == 0) {
+                        peakHeap.accumulateAndGet(usedHeapAfterGc(), Math::max);
+                    }
+                    _s.request(16);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        assertEquals(bytes, received.get());
+        assertEquals(0, (int) publisher.exitCode().get(10, TimeUnit.SECONDS));
+
+        // nothing the size of the output was ever retained
+        assertTrue("heap grew by " + (peakHeap.get() - baseline), peakHeap.get() - baseline < bytes / 4);
+    }
+
+    @Test(timeout = 60_000)
+    public void slowSubscriberThrottlesChild() throws Exception {
+        OutputPublisher publisher = stub("--lines", "1000000").publishLines();
+        AtomicLong received = new AtomicLong();
+        Subscription[] subscription = new Subscription[1];
+
+        publisher.subscribe(new Subscriber<OutputChunk>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription[0] = s;
+                s.request(10);
+            }
+
+            @Override
+            public void onNext(OutputChunk chunk) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        // with no further demand the child fills the pipe and blocks instead of exiting
+        Thread.sleep(Duration.ofSeconds(2).toMillis());
+        assertEquals(10, received.get());
+        assertFalse(publisher.exitCode().isDone());
+
+        subscription[0].cancel();
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
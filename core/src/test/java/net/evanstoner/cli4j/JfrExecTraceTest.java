@@ -0,0 +1,65 @@
+package net.evanstoner.cli4j;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class JfrExecTraceTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void execEmitsPhaseEvents() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        Command echo = new Command("echo") {
+        };
+        echo.positional(0, "hello");
+
+        Path file = tmp.newFile("exec.jfr").toPath();
+        Result r;
+        try (Recording recording = new Recording()) {
+            recording.enable("net.evanstoner.cli4j.CommandSpawn");
+            recording.enable("net.evanstoner.cli4j.CommandWait");
+            recording.enable("net.evanstoner.cli4j.CommandDrain");
+            recording.start();
+            r = echo.exec();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, RecordedEvent> events = new HashMap<>();
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+        for (RecordedEvent e : recorded) {
+            events.put(e.getEventType().getName(), e);
+        }
+
+        RecordedEvent spawn = events.get("net.evanstoner.cli4j.CommandSpawn");
+        assertNotNull(recorded.toString(), spawn);
+        assertEquals("echo hello", spawn.getString("command"));
+        assertEquals(r.getPid(), spawn.getLong("pid"));
+
+        RecordedEvent wait = events.get("net.evanstoner.cli4j.CommandWait");
+        assertNotNull(recorded.toString(), wait);
+        assertEquals(0, wait.getInt("exitCode"));
+
+        RecordedEvent drain = events.get("net.evanstoner.cli4j.CommandDrain");
+        assertNotNull(recorded.toString(), drain);
+        assertEquals("hello\n".length(), drain.getLong("stdoutBytes"));
+        assertEquals(0, drain.getLong("stderrBytes"));
+    }
+}
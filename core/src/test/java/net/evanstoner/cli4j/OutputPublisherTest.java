@@ -0,0 +1,169 @@
+package net.evanstoner.cli4j;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class OutputPublisherTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    @Before
+    public void requirePosix() {
+        assumeFalse(OS.contains("win"));
+    }
+
+    static class RecordingSubscriber implements Subscriber<OutputChunk> {
+        final List<OutputChunk> chunks = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+        private final long _initialRequest;
+
+        RecordingSubscriber(long initialRequest) {
+            _initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            if (_initialRequest > 0) {
+                s.request(_initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(OutputChunk chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    private static Command seq(int to) {
+        Command seq = new Command("seq") {
+        };
+        seq.positional(0, "1");
+        seq.positional(1, String.valueOf(to));
+        return seq;
+    }
+
+    @Test
+    public void publishesLinesAndCompletes() throws Exception {
+        OutputPublisher publisher = seq(5).publishLines();
+        RecordingSubscriber s = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(s);
+
+        assertTrue(s.done.await(10, TimeUnit.SECONDS));
+        assertTrue(s.completed);
+        assertEquals(5, s.chunks.size());
+        assertEquals("1", s.chunks.get(0).asString());
+        assertEquals("5", s.chunks.get(4).asString());
+        assertTrue(s.chunks.get(0).isStdout());
+        assertEquals(0, (int) publisher.exitCode().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void completesWithoutExtraDemand() throws Exception {
+        OutputPublisher publisher = seq(3).publishLines();
+        RecordingSubscriber s = new RecordingSubscriber(3);
+        publisher.subscribe(s);
+
+        assertTrue(s.done.await(10, TimeUnit.SECONDS));
+        assertTrue(s.completed);
+        assertEquals(3, s.chunks.size());
+    }
+
+    @Test
+    public void neverDeliversMoreThanRequested() throws Exception {
+        OutputPublisher publisher = seq(1000000).publishLines();
+        RecordingSubscriber s = new RecordingSubscriber(3);
+        publisher.subscribe(s);
+
+        Thread.sleep(200);
+        assertEquals(3, s.chunks.size());
+
+        s.subscription.request(2);
+        Thread.sleep(200);
+        assertEquals(5, s.chunks.size());
+        assertEquals("5", s.chunks.get(4).asString());
+
+        s.subscription.cancel();
+        assertTrue(publisher.exitCode().isCancelled());
+    }
+
+    @Test
+    public void publishesStderr() throws Exception {
+        Command ls = new Command("ls") {
+        };
+        ls.positional(0, "/path/to/fake/dir");
+
+        OutputPublisher publisher = ls.publish();
+        RecordingSubscriber s = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(s);
+
+        assertTrue(s.done.await(10, TimeUnit.SECONDS));
+        assertFalse(s.chunks.isEmpty());
+        for (OutputChunk chunk : s.chunks) {
+            assertTrue(chunk.isStderr());
+        }
+        assertNotEquals(0, (int) publisher.exitCode().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectsSecondSubscriber() throws Exception {
+        OutputPublisher publisher = seq(3).publishLines();
+        RecordingSubscriber first = new RecordingSubscriber(Long.MAX_VALUE);
+        RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        assertTrue(second.done.await(10, TimeUnit.SECONDS));
+        assertTrue(second.error instanceof IllegalStateException);
+        assertTrue(first.done.await(10, TimeUnit.SECONDS));
+        assertTrue(first.completed);
+    }
+
+    @Test
+    public void nonPositiveRequestSignalsError() throws Exception {
+        OutputPublisher publisher = seq(3).publishLines();
+        RecordingSubscriber s = new RecordingSubscriber(0);
+        publisher.subscribe(s);
+        s.subscription.request(0);
+
+        assertTrue(s.done.await(10, TimeUnit.SECONDS));
+        assertTrue(s.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void unknownCommandSignalsError() throws Exception {
+        OutputPublisher publisher = new Command("kfjndl") {
+        }.publish();
+        RecordingSubscriber s = new RecordingSubscriber(1);
+        publisher.subscribe(s);
+
+        assertTrue(s.done.await(10, TimeUnit.SECONDS));
+        assertTrue(s.error instanceof java.io.IOException);
+        assertTrue(publisher.exitCode().isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,166 @@
+package net.evanstoner.cli4j;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ProcessLauncherTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final ProcessLauncher _originalDefault = Command.getDefaultLauncher();
+
+    @After
+    public void restoreDefault() {
+        Command.setDefaultLauncher(_originalDefault);
+    }
+
+    /**
+     * A process which has already exited, with canned output.
+     */
+    static class FakeProcess extends Process {
+        private final int _exitCode;
+        private final byte[] _out;
+        private final byte[] _err;
+
+        FakeProcess(int exitCode, String out, String err) {
+            _exitCode = exitCode;
+            _out = out.getBytes(StandardCharsets.UTF_8);
+            _err = err.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(_out);
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(_err);
+        }
+
+        @Override
+        public int waitFor() {
+            return _exitCode;
+        }
+
+        @Override
+        public int exitValue() {
+            return _exitCode;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    static class FakeLauncher implements ProcessLauncher {
+        final List<List<String>> launched = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Process launch(List<String> command) {
+            launched.add(command);
+            return new FakeProcess(0, "fake output\n", "");
+        }
+    }
+
+    @Test
+    public void commandDelegatesToItsLauncher() throws Exception {
+        FakeLauncher fake = new FakeLauncher();
+        Command rsync = new Command("rsync") {
+        }.launcher(fake);
+        rsync.shortOption("a");
+        rsync.positional(0, "src/");
+        rsync.positional(1, "dest/");
+
+        Result r = rsync.exec();
+
+        assertEquals("fake output", r.getOutput());
+        assertEquals(0, r.getExitCode());
+        assertEquals(Collections.singletonList(Arrays.asList("rsync", "-a", "src/", "dest/")), fake.launched);
+    }
+
+    @Test
+    public void subcommandsInheritTheParentLauncher() throws Exception {
+        FakeLauncher fake = new FakeLauncher();
+        Command git = new Command("git") {
+        }.launcher(fake);
+        Command status = new Command("status", git) {
+        };
+
+        status.exec();
+
+        assertEquals(Collections.singletonList(Arrays.asList("git", "status")), fake.launched);
+    }
+
+    @Test
+    public void defaultLauncherIsUsedWhenNoneIsSet() throws Exception {
+        FakeLauncher fake = new FakeLauncher();
+        Command.setDefaultLauncher(fake);
+
+        new Command("uptime") {
+        }.exec();
+
+        assertEquals(Collections.singletonList(Collections.singletonList("uptime")), fake.launched);
+    }
+
+    @Test
+    public void publisherUsesTheLauncher() throws Exception {
+        FakeLauncher fake = new FakeLauncher();
+        OutputPublisher publisher = new Command("cat") {
+        }.launcher(fake).publishLines();
+
+        OutputPublisherTest.RecordingSubscriber s = new OutputPublisherTest.RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(s);
+        s.done.await();
+
+        assertEquals(1, s.chunks.size());
+        assertEquals("fake output", s.chunks.get(0).asString());
+    }
+
+    @Test
+    public void processBuilderLauncherAppliesDirectoryAndEnvironment() throws Exception {
+        assumeTrue(OS.contains("linux"));
+
+        ProcessBuilderLauncher launcher = new ProcessBuilderLauncher(tmp.getRoot(),
+                Collections.singletonMap("CLI4J_TEST", "hello"));
+
+        Command pwd = new Command("pwd") {
+        }.launcher(launcher);
+        assertEquals(tmp.getRoot().getCanonicalPath(), pwd.exec().getOutput());
+
+        Command env = new Command("env") {
+        }.launcher(launcher);
+        assertTrue(env.exec().getOutput().contains("CLI4J_TEST=hello"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void launchMechanismIsFixedAfterFirstLaunch() throws Exception {
+        assumeTrue(OS.contains("linux"));
+
+        new ProcessBuilderLauncher().launch(Collections.singletonList("true")).waitFor();
+        ProcessBuilderLauncher.useLaunchMechanism(ProcessBuilderLauncher.LaunchMechanism.VFORK);
+    }
+}
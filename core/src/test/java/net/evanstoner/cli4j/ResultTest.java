@@ -3,6 +3,9 @@ package net.evanstoner.cli4j;
 
 import org.junit.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+
 import static org.junit.Assert.*;
 
 public class ResultTest {
@@ -58,4 +61,27 @@ public class ResultTest {
         assertEquals("", r.getOutput());
         assertEquals("myerror", r.getErrorOutput());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenResourceAccounting() {
+        Instant start = Instant.now();
+        ResourceUsage usage = new ResourceUsage(Duration.ofMillis(30), Duration.ofMillis(10),
+                Duration.ofMillis(5), Duration.ofMillis(5), 4096);
+        Result r = new Result(0, "out", "", 1234, start, Duration.ofMillis(100), usage);
+        assertEquals(1234, r.getPid());
+        assertEquals(start, r.getStartTime());
+        assertEquals(Duration.ofMillis(100), r.getDuration());
+        assertTrue(r.hasResourceUsage());
+        assertEquals(Duration.ofMillis(50), r.getResourceUsage().getTotalCpuTime());
+        assertEquals(4096, r.getResourceUsage().getPeakRssBytes());
+    }
+
+    @Test
+    public void givenNoResourceAccounting() {
+        Result r = new Result(0, "out");
+        assertEquals(-1, r.getPid());
+        assertNull(r.getStartTime());
+        assertNull(r.getDuration());
+        assertFalse(r.hasResourceUsage());
+    }
+}
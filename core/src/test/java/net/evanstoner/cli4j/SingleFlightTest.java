@@ -0,0 +1,141 @@
+package net.evanstoner.cli4j;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class SingleFlightTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    private static <T> List<T> runConcurrently(int n, Callable<T> call) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                futures.add(pool.submit(call));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> f : futures) {
+                results.add(f.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread releaser = new Thread(() -> {
+            try {
+                // give every caller a chance to attach before the leader finishes
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        });
+        releaser.start();
+
+        List<Result> results = runConcurrently(8, () -> flight.exec("go env", () -> {
+            executions.incrementAndGet();
+            release.await();
+            return new Result(0, "GOPATH=/go");
+        }));
+
+        assertEquals(1, executions.get());
+        for (Result r : results) {
+            assertSame(results.get(0), r);
+        }
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger key = new AtomicInteger();
+
+        runConcurrently(4, () -> flight.exec("nova show " + key.incrementAndGet(), () -> {
+            executions.incrementAndGet();
+            return new Result(0, "");
+        }));
+
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    public void completedExecutionIsNotCached() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger executions = new AtomicInteger();
+
+        flight.exec("ls", () -> new Result(executions.incrementAndGet(), ""));
+        Result second = flight.exec("ls", () -> new Result(executions.incrementAndGet(), ""));
+
+        assertEquals(2, second.getExitCode());
+    }
+
+    @Test
+    public void failureIsSharedWithFollowers() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        CountDownLatch leading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread leader = new Thread(() -> {
+            try {
+                flight.exec("kfjndl", () -> {
+                    leading.countDown();
+                    release.await();
+                    throw new IOException("Cannot run program \"kfjndl\"");
+                });
+            } catch (Exception ignored) {
+            }
+        });
+        leader.start();
+        assertTrue(leading.await(10, TimeUnit.SECONDS));
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Result> follower = pool.submit(() -> flight.exec("kfjndl", () -> new Result(0, "not me")));
+            Thread.sleep(100);
+            release.countDown();
+            follower.get(10, TimeUnit.SECONDS);
+            fail("exception not propagated");
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void coalescedCommandExecutesOnce() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        Command sleep = new Command("sleep") {
+        }.coalesce(true);
+        sleep.positional(0, "0.5");
+
+        List<Result> results = runConcurrently(8, sleep::exec);
+
+        for (Result r : results) {
+            assertSame(results.get(0), r);
+        }
+    }
+}
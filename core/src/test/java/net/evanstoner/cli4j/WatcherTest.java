@@ -0,0 +1,172 @@
+package net.evanstoner.cli4j;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class WatcherTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void diffReportsAddedAndRemovedLines() {
+        OutputDiff diff = OutputDiff.between(null,
+                Arrays.asList("a", "b", "b", "c"),
+                Arrays.asList("c", "b", "d", "a"));
+
+        assertEquals(Collections.singletonList("d"), diff.getAdded());
+        assertEquals(Collections.singletonList("b"), diff.getRemoved());
+        assertTrue(diff.getChanged().isEmpty());
+    }
+
+    @Test
+    public void diffIgnoresReordering() {
+        OutputDiff diff = OutputDiff.between(null, Arrays.asList("a", "b"), Arrays.asList("b", "a"));
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void keyedDiffReportsChangedLines() {
+        OutputDiff diff = OutputDiff.between(null,
+                Arrays.asList("| 1 | web | ACTIVE |", "| 2 | db | BUILD |"),
+                Arrays.asList("| 2 | db | ACTIVE |", "| 3 | cache | BUILD |"),
+                line -> line.split("\\|")[1].trim());
+
+        assertEquals(Collections.singletonList("| 3 | cache | BUILD |"), diff.getAdded());
+        assertEquals(Collections.singletonList("| 1 | web | ACTIVE |"), diff.getRemoved());
+        assertEquals(1, diff.getChanged().size());
+        assertEquals("| 2 | db | BUILD |", diff.getChanged().get(0).getBefore());
+        assertEquals("| 2 | db | ACTIVE |", diff.getChanged().get(0).getAfter());
+    }
+
+    @Test
+    public void keyedDiffComparesLinesWithoutAKeyUnkeyed() {
+        String border = "+----+-------+--------+";
+        OutputDiff diff = OutputDiff.between(null,
+                Arrays.asList(border, "| ID | Name  | Status |", border, "| 1  | web   | BUILD  |", border),
+                Arrays.asList(border, "| ID | Name  | Status |", border, "| 1  | web   | ACTIVE |", "", border),
+                // throws on the borders, and returns null for blank lines
+                line -> line.isEmpty() ? null : line.split("\\|")[1].trim());
+
+        assertEquals(Collections.singletonList(""), diff.getAdded());
+        assertTrue(diff.getRemoved().isEmpty());
+        assertEquals(1, diff.getChanged().size());
+        assertEquals("| 1  | web   | ACTIVE |", diff.getChanged().get(0).getAfter());
+    }
+
+    @Test
+    public void keyedDiffKeepsOutputOrder() {
+        String border = "+----+";
+        OutputDiff diff = OutputDiff.between(null,
+                Arrays.asList("| 1 | web |", border, "| 2 | db |"),
+                Arrays.asList("| 3 | cache |", border, border, "| 4 | queue |"),
+                line -> line.split("\\|")[1].trim());
+
+        assertEquals(Arrays.asList("| 3 | cache |", border, "| 4 | queue |"), diff.getAdded());
+        assertEquals(Arrays.asList("| 1 | web |", "| 2 | db |"), diff.getRemoved());
+    }
+
+    @Test
+    public void watchIgnoresReordering() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        File file = tmp.newFile("servers.txt");
+        Files.write(file.toPath(), "web\ndb\n".getBytes(StandardCharsets.UTF_8));
+
+        Command cat = new Command("cat") {
+        };
+        cat.positional(0, file.getPath());
+
+        BlockingQueue<OutputDiff> diffs = new LinkedBlockingQueue<>();
+        try (Watcher watcher = cat.watch(Duration.ofMillis(20)).maxInterval(Duration.ofMillis(80)).start(diffs::add)) {
+            assertNotNull(diffs.poll(10, TimeUnit.SECONDS));
+
+            Files.write(file.toPath(), "db\nweb\n".getBytes(StandardCharsets.UTF_8));
+
+            assertNull(diffs.poll(300, TimeUnit.MILLISECONDS));
+            assertEquals(Duration.ofMillis(80), watcher.getCurrentInterval());
+        }
+    }
+
+    @Test
+    public void watchEmitsOnlyChanges() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        File file = tmp.newFile("servers.txt");
+        Files.write(file.toPath(), "web\ndb\n".getBytes(StandardCharsets.UTF_8));
+
+        Command cat = new Command("cat") {
+        };
+        cat.positional(0, file.getPath());
+
+        BlockingQueue<OutputDiff> diffs = new LinkedBlockingQueue<>();
+        try (Watcher watcher = cat.watch(Duration.ofMillis(20)).maxInterval(Duration.ofMillis(80)).start(diffs::add)) {
+            OutputDiff first = diffs.poll(10, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertEquals(Arrays.asList("web", "db"), first.getAdded());
+
+            // unchanged output is never reported, and the interval backs off
+            assertNull(diffs.poll(300, TimeUnit.MILLISECONDS));
+            assertEquals(Duration.ofMillis(80), watcher.getCurrentInterval());
+
+            Files.write(file.toPath(), "web\ncache\n".getBytes(StandardCharsets.UTF_8));
+
+            OutputDiff second = diffs.poll(10, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertEquals(Collections.singletonList("cache"), second.getAdded());
+            assertEquals(Collections.singletonList("db"), second.getRemoved());
+        }
+    }
+
+    @Test
+    public void watchKeepsPollingAfterAnError() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        File file = tmp.newFile("servers.txt");
+        Files.write(file.toPath(), "web\n".getBytes(StandardCharsets.UTF_8));
+
+        Command cat = new Command("cat") {
+        };
+        cat.positional(0, file.getPath());
+
+        BlockingQueue<OutputDiff> diffs = new LinkedBlockingQueue<>();
+        BlockingQueue<Exception> errors = new LinkedBlockingQueue<>();
+        Consumer<OutputDiff> listener = diff -> {
+            diffs.add(diff);
+            if (diffs.size() == 1) {
+                throw new AssertionError("listener failed");
+            }
+        };
+        try (Watcher watcher = cat.watch(Duration.ofMillis(20)).onError(errors::add).start(listener)) {
+            assertNotNull(diffs.poll(10, TimeUnit.SECONDS));
+            Exception error = errors.poll(10, TimeUnit.SECONDS);
+            assertTrue(error instanceof ExecutionException);
+            assertTrue(error.getCause() instanceof AssertionError);
+
+            Files.write(file.toPath(), "db\n".getBytes(StandardCharsets.UTF_8));
+
+            OutputDiff second = diffs.poll(10, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertEquals(Collections.singletonList("db"), second.getAdded());
+        }
+    }
+}
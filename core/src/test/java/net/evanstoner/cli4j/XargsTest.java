@@ -0,0 +1,118 @@
+package net.evanstoner.cli4j;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class XargsTest {
+
+    private static final String OS = System.getProperty("os.name").toLowerCase();
+
+    private static List<String> numbers(int count) {
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            args.add(String.valueOf(i));
+        }
+        return args;
+    }
+
+    @Test
+    public void partitionsByCount() {
+        Command echo = new Command("echo") {
+        };
+
+        List<List<String>> partitions = new Xargs(echo).maxArgs(3).partition(numbers(7));
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("0", "1", "2"),
+                Arrays.asList("3", "4", "5"),
+                Collections.singletonList("6")), partitions);
+    }
+
+    @Test
+    public void partitionsBySize() {
+        Command echo = new Command("echo") {
+        };
+
+        // "echo" costs 5 bytes plus a pointer; every single-digit argument costs 2 plus a pointer
+        List<List<String>> partitions = new Xargs(echo).maxCommandLength(13 + 3 * 10).partition(numbers(10));
+
+        assertEquals(4, partitions.size());
+        for (List<String> partition : partitions.subList(0, 3)) {
+            assertEquals(3, partition.size());
+        }
+        assertEquals(Collections.singletonList("9"), partitions.get(3));
+    }
+
+    @Test
+    public void noArgumentsRunsOnce() {
+        Command echo = new Command("echo") {
+        };
+
+        List<List<String>> partitions = new Xargs(echo).partition(Collections.emptyList());
+
+        assertEquals(Collections.singletonList(Collections.emptyList()), partitions);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void argumentLongerThanLimitIsRejected() {
+        Command echo = new Command("echo") {
+        };
+
+        new Xargs(echo).maxCommandLength(32).partition(Collections.singletonList("this-argument-does-not-fit"));
+    }
+
+    @Test
+    public void environmentCountsAgainstArgMax() {
+        Command echo = new Command("echo") {
+        };
+
+        long env = 0;
+        for (java.util.Map.Entry<String, String> e : System.getenv().entrySet()) {
+            env += e.getKey().length() + e.getValue().length() + 2 + 8;
+        }
+
+        // leave room for exactly one argument next to the environment
+        List<List<String>> partitions = new Xargs(echo).argMax(env + 2048 + 13 + 10).partition(numbers(3));
+
+        assertEquals(3, partitions.size());
+    }
+
+    @Test
+    public void execMergesOutputsInOrder() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        Command echo = new Command("echo") {
+        };
+        echo.positional(0, "n");
+
+        Result r = new Xargs(echo).maxArgs(10).parallelism(4).exec(numbers(100));
+
+        assertTrue(r.isSuccessful());
+        String[] lines = r.getOutput().split(System.lineSeparator());
+        assertEquals(10, lines.length);
+        assertEquals("n 0 1 2 3 4 5 6 7 8 9", lines[0]);
+        assertEquals("n 90 91 92 93 94 95 96 97 98 99", lines[9]);
+    }
+
+    @Test
+    public void execReportsFirstFailure() throws Exception {
+        assumeFalse(OS.contains("win"));
+
+        Command ls = new Command("ls") {
+        };
+        ls.shortOption("d");
+
+        Result r = new Xargs(ls).maxArgs(1).exec(Arrays.asList(".", "/path/to/fake/dir", "src"));
+
+        assertEquals(2, r.getExitCode());
+        assertEquals("." + System.lineSeparator() + "src", r.getOutput());
+        assertTrue(r.hasErrorOutput());
+    }
+}
@@ -0,0 +1,152 @@
+package net.evanstoner.cli4j.stub;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A synthetic command-line program for exercising the execution engine. Every behaviour is controlled
+ * by options, all of which default to doing nothing:
+ * <pre>
+ * --stdout-bytes N   write N bytes to stdout
+ * --stderr-bytes N   write N bytes to stderr, interleaved with stdout block by block
+ * --lines N          write N numbered lines to stdout ("line 0" ...)
+ * --stderr-every K   while writing lines, also write a line to stderr after every K stdout lines
+ * --line-rate R      write at most R lines per second
+ * --delay-ms N       sleep N milliseconds before exiting
+ * --exit N           exit with status N
+ * </pre>
+ * Run it with {@link #command(String...)} to get a command line which uses the current JVM and test
+ * classpath.
+ */
+public class StubCli {
+    private static final int BLOCK = 8192;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long stdoutBytes = 0;
+        long stderrBytes = 0;
+        long lines = 0;
+        long stderrEvery = 0;
+        long lineRate = 0;
+        long delayMs = 0;
+        int exit = 0;
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                usage("missing value for " + args[i]);
+            }
+            long value = Long.parseLong(args[i + 1]);
+            switch (args[i]) {
+                case "--stdout-bytes":
+                    stdoutBytes = value;
+                    break;
+                case "--stderr-bytes":
+                    stderrBytes = value;
+                    break;
+                case "--lines":
+                    lines = value;
+                    break;
+                case "--stderr-every":
+                    stderrEvery = value;
+                    break;
+                case "--line-rate":
+                    lineRate = value;
+                    break;
+                case "--delay-ms":
+                    delayMs = value;
+                    break;
+                case "--exit":
+                    exit = (int) value;
+                    break;
+                default:
+                    usage("unknown option " + args[i]);
+            }
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BLOCK);
+        OutputStream err = new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), BLOCK);
+
+        writeBytes(out, err, stdoutBytes, stderrBytes);
+        writeLines(out, err, lines, stderrEvery, lineRate);
+
+        out.flush();
+        err.flush();
+
+        if (delayMs > 0) {
+            Thread.sleep(delayMs);
+        }
+        System.exit(exit);
+    }
+
+    private static void writeBytes(OutputStream out, OutputStream err, long stdoutBytes, long stderrBytes)
+            throws IOException {
+        byte[] o = new byte[BLOCK];
+        byte[] e = new byte[BLOCK];
+        Arrays.fill(o, (byte) 'o');
+        Arrays.fill(e, (byte) 'e');
+
+        while (stdoutBytes > 0 || stderrBytes > 0) {
+            if (stdoutBytes > 0) {
+                int n = (int) Math.min(BLOCK, stdoutBytes);
+                out.write(o, 0, n);
+                out.flush();
+                stdoutBytes -= n;
+            }
+            if (stderrBytes > 0) {
+                int n = (int) Math.min(BLOCK, stderrBytes);
+                err.write(e, 0, n);
+                err.flush();
+                stderrBytes -= n;
+            }
+        }
+    }
+
+    private static void writeLines(OutputStream out, OutputStream err, long lines, long stderrEvery, long lineRate)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        for (long i = 0; i < lines; i++) {
+            out.write(("line " + i + "\n").getBytes(StandardCharsets.US_ASCII));
+
+            if (stderrEvery > 0 && (i + 1) % stderrEvery == 0) {
+                out.flush();
+                err.write(("error " + i + "\n").getBytes(StandardCharsets.US_ASCII));
+                err.flush();
+            }
+
+            if (lineRate > 0) {
+                out.flush();
+                long due = start + (i + 1) * 1_000_000_000L / lineRate;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            }
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println("StubCli: " + message);
+        System.exit(64);
+    }
+
+    /**
+     * @param args Options for the stub.
+     * @return A command line which runs the stub in a new JVM with the current classpath.
+     */
+    public static String command(String... args) {
+        String java = System.getProperty("java.home") + "/bin/java";
+        String classpath = StubCli.class.getProtectionDomain().getCodeSource().getLocation().getPath();
+
+        StringBuilder sb = new StringBuilder(java)
+                .append(" -Xshare:auto -XX:TieredStopAtLevel=1 -Xmx32m -cp ").append(classpath)
+                .append(' ').append(StubCli.class.getName());
+        for (String arg : args) {
+            sb.append(' ').append(arg);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,422 @@
+package net.evanstoner.cli4j.processor;
+
+import net.evanstoner.cli4j.annotation.Positional;
+import net.evanstoner.cli4j.annotation.Short;
+import net.evanstoner.cli4j.annotation.Subcommand;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@link net.evanstoner.cli4j.Command} subclass for every interface annotated with
+ * {@link Subcommand}.
+ * <p>
+ * The generated class stores each option in a field and overrides {@code build()} with straight-line
+ * code whose option tokens (prefix, name and glue) are string constants worked out at compile time, so
+ * there are no maps, reflection or proxies involved at runtime.
+ */
+public class CommandProcessor extends AbstractProcessor {
+
+    static final String SUFFIX = "Command";
+
+    private static final String COMMAND = "net.evanstoner.cli4j.Command";
+
+    private enum Kind {
+        SHORT_FLAG,
+        SHORT,
+        LONG,
+        POSITIONAL
+    }
+
+    private static class Binding {
+        ExecutableElement method;
+        Kind kind;
+        String name;
+        int index;
+        String field;
+        String paramType;
+        boolean primitive;
+        boolean isString;
+        boolean array;
+        boolean varargs;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // claim the member annotations too, so nothing reports them as unprocessed
+        return new HashSet<>(Arrays.asList(
+                Subcommand.class.getCanonicalName(),
+                net.evanstoner.cli4j.annotation.Long.class.getCanonicalName(),
+                Short.class.getCanonicalName(),
+                Positional.class.getCanonicalName()));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Subcommand.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@Subcommand can only be applied to interfaces");
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            if (!type.getTypeParameters().isEmpty()) {
+                error(type, "@Subcommand interfaces can't be generic");
+                continue;
+            }
+
+            List<Binding> bindings = bind(type);
+            if (bindings == null) {
+                continue;
+            }
+
+            try {
+                write(type, bindings);
+            } catch (IOException e) {
+                error(type, "failed to write generated command: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The bindings for every method of the interface, or null if any of them is invalid.
+     */
+    private List<Binding> bind(TypeElement type) {
+        List<Binding> bindings = new ArrayList<>();
+        Set<Integer> indexes = new HashSet<>();
+        Set<String> fields = new HashSet<>();
+        boolean valid = true;
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE
+                    || !method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+
+            net.evanstoner.cli4j.annotation.Long longOpt = method.getAnnotation(net.evanstoner.cli4j.annotation.Long.class);
+            Short shortOpt = method.getAnnotation(Short.class);
+            Positional positional = method.getAnnotation(Positional.class);
+
+            int annotationCount = (longOpt != null ? 1 : 0) + (shortOpt != null ? 1 : 0) + (positional != null ? 1 : 0);
+            if (annotationCount != 1) {
+                error(method, "method must have exactly one of @Long, @Short or @Positional");
+                valid = false;
+                continue;
+            }
+
+            if (!processingEnv.getTypeUtils().isSameType(method.getReturnType(), type.asType())) {
+                error(method, "method must return " + type.getSimpleName());
+                valid = false;
+                continue;
+            }
+
+            List<? extends VariableElement> params = method.getParameters();
+            if (params.size() > 1) {
+                error(method, "method must have zero or one parameters");
+                valid = false;
+                continue;
+            }
+
+            ExecutableElement inherited = commandMethod(method);
+            if (inherited != null) {
+                error(method, "method clashes with " + inherited.getEnclosingElement().getSimpleName() + "."
+                        + inherited.getSimpleName() + "()");
+                valid = false;
+                continue;
+            }
+
+            Binding b = new Binding();
+            b.method = method;
+            // overloads share a name, so number the fields of all but the first
+            b.field = "_" + method.getSimpleName();
+            for (int n = 2; !fields.add(b.field); n++) {
+                b.field = "_" + method.getSimpleName() + n;
+            }
+
+            if (positional != null) {
+                if (params.isEmpty()) {
+                    error(method, "@Positional method must have one parameter");
+                    valid = false;
+                    continue;
+                }
+                if (!indexes.add(positional.value())) {
+                    error(method, "duplicate @Positional index " + positional.value());
+                    valid = false;
+                    continue;
+                }
+                b.kind = Kind.POSITIONAL;
+                b.index = positional.value();
+            } else if (shortOpt != null) {
+                b.kind = params.isEmpty() ? Kind.SHORT_FLAG : Kind.SHORT;
+                b.name = shortOpt.value();
+            } else {
+                b.kind = Kind.LONG;
+                b.name = longOpt.value();
+            }
+
+            if (!params.isEmpty()) {
+                TypeMirror paramType = params.get(0).asType();
+                if (b.kind == Kind.POSITIONAL && isStringArray(paramType)) {
+                    // consecutive arguments starting at the index
+                    b.array = true;
+                    b.varargs = method.isVarArgs();
+                } else if (!isScalar(paramType)) {
+                    error(method, b.kind == Kind.POSITIONAL
+                            ? "parameter must be a primitive, a boxed primitive, a String, an enum or String[]"
+                            : "parameter must be a primitive, a boxed primitive, a String or an enum");
+                    valid = false;
+                    continue;
+                }
+                b.paramType = paramType.toString();
+                b.primitive = paramType.getKind().isPrimitive();
+                b.isString = b.paramType.equals(String.class.getName());
+            }
+
+            bindings.add(b);
+        }
+
+        return valid ? bindings : null;
+    }
+
+    private boolean isScalar(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element element = processingEnv.getTypeUtils().asElement(type);
+        if (element.getKind() == ElementKind.ENUM) {
+            return true;
+        }
+        String name = ((TypeElement) element).getQualifiedName().toString();
+        if (name.equals(String.class.getName())) {
+            return true;
+        }
+        try {
+            processingEnv.getTypeUtils().unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean isStringArray(TypeMirror type) {
+        if (type.getKind() != TypeKind.ARRAY) {
+            return false;
+        }
+        TypeMirror component = ((ArrayType) type).getComponentType();
+        return component.getKind() == TypeKind.DECLARED
+                && ((TypeElement) processingEnv.getTypeUtils().asElement(component)).getQualifiedName()
+                .contentEquals(String.class.getName());
+    }
+
+    /**
+     * @return The method of Command (or Object) which the generated implementation of method would
+     * override or hide, or null if there isn't one.
+     */
+    private ExecutableElement commandMethod(ExecutableElement method) {
+        TypeElement command = processingEnv.getElementUtils().getTypeElement(COMMAND);
+        Types types = processingEnv.getTypeUtils();
+
+        for (ExecutableElement m : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(command))) {
+            if (m.getModifiers().contains(Modifier.PRIVATE)
+                    || !m.getSimpleName().equals(method.getSimpleName())
+                    || m.getParameters().size() != method.getParameters().size()) {
+                continue;
+            }
+            boolean same = true;
+            for (int i = 0; i < m.getParameters().size(); i++) {
+                same &= types.isSameType(types.erasure(m.getParameters().get(i).asType()),
+                        types.erasure(method.getParameters().get(i).asType()));
+            }
+            if (same) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private void write(TypeElement type, List<Binding> bindings) throws IOException {
+        Subcommand subcommand = type.getAnnotation(Subcommand.class);
+        String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String className = type.getSimpleName() + SUFFIX;
+        String qualifiedName = pkg.isEmpty() ? className : pkg + "." + className;
+        String base = literal(subcommand.value());
+
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            src.append("package ").append(pkg).append(";\n\n");
+        }
+        src.append("import net.evanstoner.cli4j.Command;\n\n");
+        src.append("/**\n");
+        src.append(" * Generated by ").append(getClass().getName()).append(" from {@link ")
+                .append(type.getQualifiedName()).append("}.\n");
+        src.append(" */\n");
+        src.append("public class ").append(className).append(" extends Command implements ")
+                .append(type.getQualifiedName()).append(" {\n");
+
+        for (Binding b : bindings) {
+            src.append("    private ").append(b.paramType == null ? "boolean" : b.array ? "String[]" : "String")
+                    .append(" ").append(b.field).append(";\n");
+        }
+        if (!bindings.isEmpty()) {
+            src.append("\n");
+        }
+
+        src.append("    public ").append(className).append("() {\n");
+        src.append("        super(").append(base).append(");\n");
+        src.append("    }\n\n");
+        src.append("    public ").append(className).append("(Command parent) {\n");
+        src.append("        super(").append(base).append(", parent);\n");
+        src.append("    }\n");
+
+        for (Binding b : bindings) {
+            src.append("\n    @Override\n");
+            src.append("    public ").append(className).append(" ").append(b.method.getSimpleName()).append("(");
+            if (b.paramType == null) {
+                src.append(") {\n");
+                src.append("        ").append(b.field).append(" = true;\n");
+            } else if (b.array) {
+                src.append(b.varargs ? "String... value" : "String[] value").append(") {\n");
+                src.append("        ").append(b.field).append(" = value == null ? null : value.clone();\n");
+            } else {
+                src.append(b.paramType).append(" value) {\n");
+                src.append("        ").append(b.field).append(" = ");
+                if (b.isString) {
+                    src.append("value");
+                } else if (b.primitive) {
+                    src.append("String.valueOf(value)");
+                } else {
+                    src.append("value == null ? null : String.valueOf(value)");
+                }
+                src.append(";\n");
+            }
+            src.append("        return this;\n");
+            src.append("    }\n");
+        }
+
+        writeBuild(src, subcommand, bindings);
+
+        src.append("}\n");
+
+        try (Writer w = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            w.write(src.toString());
+        }
+    }
+
+    /**
+     * Emit a build() override which renders the same command line as Command.build() would for
+     * NAMED_THEN_POSITIONAL order: combined short flags, short options, long options, then positional
+     * arguments by index.
+     */
+    private void writeBuild(StringBuilder src, Subcommand subcommand, List<Binding> bindings) {
+        String shortPrefix = subcommand.shortOptsPrefix();
+        String longPrefix = subcommand.longOptsPrefix();
+
+        src.append("\n    @Override\n");
+        src.append("    protected String build() {\n");
+        src.append("        StringBuilder sb = new StringBuilder(buildParent()).append(")
+                .append(literal(subcommand.value())).append(");\n");
+
+        List<Binding> flags = ofKind(bindings, Kind.SHORT_FLAG);
+        if (!flags.isEmpty()) {
+            src.append("        int flagsStart = sb.length();\n");
+            src.append("        sb.append(").append(literal(" " + shortPrefix)).append(");\n");
+            for (Binding b : flags) {
+                src.append("        if (").append(b.field).append(") {\n");
+                src.append("            sb.append(").append(literal(b.name)).append(");\n");
+                src.append("        }\n");
+            }
+            src.append("        if (sb.length() == flagsStart + ").append(1 + shortPrefix.length()).append(") {\n");
+            src.append("            sb.setLength(flagsStart);\n");
+            src.append("        }\n");
+        }
+
+        for (Binding b : ofKind(bindings, Kind.SHORT)) {
+            src.append("        if (").append(b.field).append(" != null) {\n");
+            src.append("            sb.append(").append(literal(" " + shortPrefix + b.name)).append(");\n");
+            src.append("            if (!").append(b.field).append(".trim().isEmpty()) {\n");
+            src.append("                sb.append(' ').append(").append(b.field).append(");\n");
+            src.append("            }\n");
+            src.append("        }\n");
+        }
+
+        for (Binding b : ofKind(bindings, Kind.LONG)) {
+            if (b.paramType == null) {
+                src.append("        if (").append(b.field).append(") {\n");
+                src.append("            sb.append(").append(literal(" " + longPrefix + b.name)).append(");\n");
+            } else {
+                src.append("        if (").append(b.field).append(" != null) {\n");
+                src.append("            sb.append(").append(literal(" " + longPrefix + b.name + subcommand.longOptsGlue()))
+                        .append(").append(").append(b.field).append(");\n");
+            }
+            src.append("        }\n");
+        }
+
+        List<Binding> positionals = ofKind(bindings, Kind.POSITIONAL);
+        positionals.sort(Comparator.comparingInt(b -> b.index));
+        for (Binding b : positionals) {
+            src.append("        if (").append(b.field).append(" != null) {\n");
+            if (b.array) {
+                src.append("            for (String value : ").append(b.field).append(") {\n");
+                src.append("                if (value != null) {\n");
+                src.append("                    sb.append(' ').append(value);\n");
+                src.append("                }\n");
+                src.append("            }\n");
+            } else {
+                src.append("            sb.append(' ').append(").append(b.field).append(");\n");
+            }
+            src.append("        }\n");
+        }
+
+        src.append("        return sb.toString();\n");
+        src.append("    }\n");
+    }
+
+    private static List<Binding> ofKind(List<Binding> bindings, Kind kind) {
+        List<Binding> result = new ArrayList<>();
+        for (Binding b : bindings) {
+            if (b.kind == kind) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
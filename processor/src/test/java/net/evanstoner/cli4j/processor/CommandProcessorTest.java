@@ -0,0 +1,290 @@
+package net.evanstoner.cli4j.processor;
+
+import net.evanstoner.cli4j.Command;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommandProcessorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private DiagnosticCollector<JavaFileObject> _diagnostics;
+
+    /**
+     * Compile a single source file with the processor and load the classes it produced.
+     */
+    private ClassLoader compile(String className, String source, String... options) throws Exception {
+        File src = new File(tmp.getRoot(), className.replace('.', '/') + ".java");
+        src.getParentFile().mkdirs();
+        Files.write(src.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        File out = tmp.newFolder();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        _diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fm = compiler.getStandardFileManager(_diagnostics, null, StandardCharsets.UTF_8);
+
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fm, _diagnostics,
+                compilerOptions(out, options),
+                null, fm.getJavaFileObjects(src));
+        task.setProcessors(Collections.singletonList(new CommandProcessor()));
+
+        if (!task.call()) {
+            return null;
+        }
+        return new URLClassLoader(new URL[]{out.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private static List<String> compilerOptions(File out, String... extra) {
+        List<String> options = new ArrayList<>(Arrays.asList("-d", out.getPath(), "-s", out.getPath(),
+                "-classpath", System.getProperty("java.class.path")));
+        options.addAll(Arrays.asList(extra));
+        return options;
+    }
+
+    private static String build(Command c) throws Exception {
+        Method build = c.getClass().getDeclaredMethod("build");
+        build.setAccessible(true);
+        return (String) build.invoke(c);
+    }
+
+    private static Object call(Object target, String method, Class<?> paramType, Object value) throws Exception {
+        if (paramType == null) {
+            return target.getClass().getMethod(method).invoke(target);
+        }
+        return target.getClass().getMethod(method, paramType).invoke(target, value);
+    }
+
+    @Test
+    public void generatesCommandWithPositionals() throws Exception {
+        ClassLoader cl = compile("gen.AddFixedIp", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "@Subcommand(\"add-fixed-ip\")\n" +
+                "public interface AddFixedIp {\n" +
+                "    @Positional(1) AddFixedIp networkId(String id);\n" +
+                "    @Positional(0) AddFixedIp server(String server);\n" +
+                "}\n");
+        assertNotNull(_diagnostics.getDiagnostics().toString(), cl);
+
+        Command nova = new Command("nova") {
+        };
+        Command c = (Command) cl.loadClass("gen.AddFixedIpCommand").getConstructor(Command.class).newInstance(nova);
+        call(c, "networkId", String.class, "some-uuid");
+        call(c, "server", String.class, "my-server");
+
+        assertEquals("nova add-fixed-ip my-server some-uuid", build(c));
+    }
+
+    @Test
+    public void generatesCommandWithOptions() throws Exception {
+        ClassLoader cl = compile("gen.Curl", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "import net.evanstoner.cli4j.annotation.Long;\n" +
+                "import net.evanstoner.cli4j.annotation.Short;\n" +
+                "@Subcommand(\"curl\")\n" +
+                "public interface Curl {\n" +
+                "    @Short(\"v\") Curl verbose();\n" +
+                "    @Short(\"0\") Curl http10();\n" +
+                "    @Short(\"c\") Curl cookieJar(String file);\n" +
+                "    @Long(\"compressed\") Curl compressed();\n" +
+                "    @Long(\"max-time\") Curl maxTime(int seconds);\n" +
+                "    @Positional(0) Curl url(String url);\n" +
+                "}\n");
+        assertNotNull(_diagnostics.getDiagnostics().toString(), cl);
+
+        Command c = (Command) cl.loadClass("gen.CurlCommand").getConstructor().newInstance();
+        assertEquals("curl", build(c));
+
+        call(c, "http10", null, null);
+        call(c, "verbose", null, null);
+        call(c, "cookieJar", String.class, "\"cookiejar.txt\"");
+        call(c, "compressed", null, null);
+        call(c, "maxTime", int.class, 5);
+        call(c, "url", String.class, "http://example.com");
+
+        assertEquals("curl -v0 -c \"cookiejar.txt\" --compressed --max-time 5 http://example.com", build(c));
+    }
+
+    @Test
+    public void honorsCustomPrefixesAndGlue() throws Exception {
+        ClassLoader cl = compile("gen.Run", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "import net.evanstoner.cli4j.annotation.Short;\n" +
+                "@Subcommand(value = \"run\", shortOptsPrefix = \"#\", longOptsPrefix = \"--D\", longOptsGlue = \"=\")\n" +
+                "public interface Run {\n" +
+                "    @Short(\"it\") Run interactive();\n" +
+                "    @net.evanstoner.cli4j.annotation.Long(\"network\") Run network(String network);\n" +
+                "    @Positional(0) Run image(String image);\n" +
+                "}\n");
+        assertNotNull(_diagnostics.getDiagnostics().toString(), cl);
+
+        Command docker = new Command("docker") {
+        };
+        Command c = (Command) cl.loadClass("gen.RunCommand").getConstructor(Command.class).newInstance(docker);
+        call(c, "interactive", null, null);
+        call(c, "network", String.class, "my_docker_network");
+        call(c, "image", String.class, "ubuntu");
+
+        assertEquals("docker run #it --Dnetwork=my_docker_network ubuntu", build(c));
+    }
+
+    @Test
+    public void rejectsUnannotatedMethod() throws Exception {
+        ClassLoader cl = compile("gen.Bad", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "@Subcommand(\"bad\")\n" +
+                "public interface Bad {\n" +
+                "    Bad something(String s);\n" +
+                "}\n");
+        assertNull(cl);
+        assertTrue(hasError("exactly one of @Long, @Short or @Positional"));
+    }
+
+    @Test
+    public void rejectsDuplicatePositionalIndex() throws Exception {
+        ClassLoader cl = compile("gen.Dup", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "@Subcommand(\"dup\")\n" +
+                "public interface Dup {\n" +
+                "    @Positional(0) Dup a(String s);\n" +
+                "    @Positional(0) Dup b(String s);\n" +
+                "}\n");
+        assertNull(cl);
+        assertTrue(hasError("duplicate @Positional index 0"));
+    }
+
+    @Test
+    public void rejectsNonFluentMethod() throws Exception {
+        ClassLoader cl = compile("gen.Void", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "@Subcommand(\"void\")\n" +
+                "public interface Void {\n" +
+                "    @Positional(0) void a(String s);\n" +
+                "}\n");
+        assertNull(cl);
+        assertTrue(hasError("method must return Void"));
+    }
+
+    @Test
+    public void generatesDistinctFieldsForOverloads() throws Exception {
+        ClassLoader cl = compile("gen.Ls", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "import net.evanstoner.cli4j.annotation.Long;\n" +
+                "@Subcommand(\"ls\")\n" +
+                "public interface Ls {\n" +
+                "    @Long(\"color\") Ls color();\n" +
+                "    @Long(\"color\") Ls color(String when);\n" +
+                "}\n");
+        assertNotNull(_diagnostics.getDiagnostics().toString(), cl);
+
+        Command c = (Command) cl.loadClass("gen.LsCommand").getConstructor().newInstance();
+        call(c, "color", String.class, "never");
+        assertEquals("ls --color never", build(c));
+        call(c, "color", null, null);
+        assertEquals("ls --color --color never", build(c));
+    }
+
+    @Test
+    public void rejectsMethodsClashingWithCommand() throws Exception {
+        ClassLoader cl = compile("gen.Clash", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "import net.evanstoner.cli4j.annotation.Short;\n" +
+                "@Subcommand(\"clash\")\n" +
+                "public interface Clash {\n" +
+                "    @Short(\"e\") Clash exec();\n" +
+                "    @Short(\"b\") Clash build();\n" +
+                "    @Positional(0) Clash exec(String s);\n" +
+                "}\n");
+        assertNull(cl);
+        assertTrue(hasError("method clashes with Command.exec()"));
+        assertTrue(hasError("method clashes with Command.build()"));
+        assertFalse(_diagnostics.getDiagnostics().toString(), hasError("already defined"));
+    }
+
+    @Test
+    public void expandsVarargsPositionals() throws Exception {
+        ClassLoader cl = compile("gen.GoRun", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "@Subcommand(\"run\")\n" +
+                "public interface GoRun {\n" +
+                "    @Positional(0) GoRun program(String file);\n" +
+                "    @Positional(1) GoRun args(String... args);\n" +
+                "}\n");
+        assertNotNull(_diagnostics.getDiagnostics().toString(), cl);
+        assertFalse(_diagnostics.getDiagnostics().toString(), hasWarning());
+
+        Command c = (Command) cl.loadClass("gen.GoRunCommand").getConstructor().newInstance();
+        Method args = c.getClass().getMethod("args", String[].class);
+        assertTrue(args.isVarArgs());
+
+        call(c, "program", String.class, "main.go");
+        args.invoke(c, (Object) new String[]{"-n", "3"});
+        assertEquals("run main.go -n 3", build(c));
+    }
+
+    @Test
+    public void rejectsNonScalarParameters() throws Exception {
+        ClassLoader cl = compile("gen.Lists", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "import net.evanstoner.cli4j.annotation.Long;\n" +
+                "@Subcommand(\"lists\")\n" +
+                "public interface Lists {\n" +
+                "    @Long(\"names\") Lists names(String... names);\n" +
+                "    @Positional(0) Lists items(java.util.List<String> items);\n" +
+                "    @Positional(1) Lists counts(int[] counts);\n" +
+                "}\n");
+        assertNull(cl);
+        assertTrue(hasError("parameter must be a primitive, a boxed primitive, a String or an enum"));
+        assertTrue(hasError("parameter must be a primitive, a boxed primitive, a String, an enum or String[]"));
+    }
+
+    @Test
+    public void claimsEveryAnnotation() throws Exception {
+        ClassLoader cl = compile("gen.Claimed", "package gen;\n" +
+                "import net.evanstoner.cli4j.annotation.*;\n" +
+                "@Subcommand(\"claimed\")\n" +
+                "public interface Claimed {\n" +
+                "    @Positional(0) Claimed value(String value);\n" +
+                "}\n", "-Xlint:all");
+        assertNotNull(_diagnostics.getDiagnostics().toString(), cl);
+        assertFalse(_diagnostics.getDiagnostics().toString(), hasWarning());
+    }
+
+    private boolean hasWarning() {
+        for (Diagnostic<? extends JavaFileObject> d : _diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.WARNING || d.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasError(String message) {
+        for (Diagnostic<? extends JavaFileObject> d : _diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR && d.getMessage(null).contains(message)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}